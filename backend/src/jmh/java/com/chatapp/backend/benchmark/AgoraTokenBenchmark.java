@@ -0,0 +1,61 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.service.AgoraTokenService;
+import com.chatapp.backend.util.AgoraUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Tokens per second: the builder on its own, and AgoraTokenService during a group call setup where
+// every participant of a channel asks for a token
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgoraTokenBenchmark {
+
+    // Placeholder credentials of the right shape; signing cost does not depend on their values
+    private static final String APP_ID = System.getProperty("agora.benchmark.app-id", "0".repeat(32));
+    private static final String APP_CERTIFICATE = System.getProperty("agora.benchmark.app-certificate", "0".repeat(32));
+
+    @Param({ "8", "64" })
+    public int participants;
+
+    private int privilegeTs;
+    private AgoraTokenService tokenService;
+
+    @Setup
+    public void setup() {
+        privilegeTs = (int) (System.currentTimeMillis() / 1000) + 3600 * 24;
+
+        tokenService = new AgoraTokenService();
+        ReflectionTestUtils.setField(tokenService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenService, "appId", APP_ID);
+        ReflectionTestUtils.setField(tokenService, "appCertificate", APP_CERTIFICATE);
+        ReflectionTestUtils.setField(tokenService, "validity", Duration.ofHours(24));
+        ReflectionTestUtils.setField(tokenService, "cacheTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(tokenService, "cacheMaxSize", 10000L);
+        ReflectionTestUtils.setField(tokenService, "minRemaining", Duration.ofHours(1));
+        tokenService.init();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String buildTokenWithUid() {
+        return AgoraUtil.buildTokenWithUid(APP_ID, APP_CERTIFICATE, "group-call-42",
+                ThreadLocalRandom.current().nextInt(participants) + 1, AgoraUtil.Role.Role_Publisher, privilegeTs);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cachedToken() {
+        return tokenService.getToken("group-call-42", ThreadLocalRandom.current().nextInt(participants) + 1,
+                AgoraUtil.Role.Role_Publisher).token();
+    }
+}
@@ -0,0 +1,69 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.bson.types.ObjectId;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Shared fixtures. The messaging template writes into a no-op channel, so fan-out benchmarks measure
+ * conversion and dispatch without a broker.
+ */
+final class BenchmarkSupport {
+
+    static volatile Object sink;
+
+    private BenchmarkSupport() {
+    }
+
+    // Same settings Spring Boot applies to the application ObjectMapper
+    static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static SimpMessagingTemplate messagingTemplate() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+            sink = message;
+            return true;
+        });
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper());
+        template.setMessageConverter(converter);
+        return template;
+    }
+
+    static ChatMessage directMessage(String senderId, String recipientId) {
+        ChatMessage message = textMessage(senderId);
+        message.setRecipientId(recipientId);
+        message.setConversationId(ChatMessage.directConversationId(senderId, recipientId));
+        return message;
+    }
+
+    static ChatMessage groupMessage(String senderId, String groupId) {
+        ChatMessage message = textMessage(senderId);
+        message.setGroupId(groupId);
+        message.setConversationId(groupId);
+        return message;
+    }
+
+    private static ChatMessage textMessage(String senderId) {
+        ChatMessage message = new ChatMessage();
+        message.setId(new ObjectId().toHexString());
+        message.setSenderId(senderId);
+        message.setContent("Are we still on for lunch tomorrow? I can book the place near the office.");
+        message.setTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        message.setStatus(ChatMessage.MessageStatus.RECEIVED);
+        message.setType(ChatMessage.MessageType.TEXT);
+        return message;
+    }
+}
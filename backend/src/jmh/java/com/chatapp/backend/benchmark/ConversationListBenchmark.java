@@ -0,0 +1,76 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.dto.ConversationDTO;
+import com.chatapp.backend.model.Conversation;
+import com.chatapp.backend.model.User;
+import com.chatapp.backend.service.ChatService;
+import com.chatapp.backend.service.ConversationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// ChatService.getRecentConversations against in-memory stand-ins for the read model and users collection
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationListBenchmark {
+
+    @Param({ "20", "100" })
+    public int conversationCount;
+
+    private ChatService chatService;
+    private String userId;
+
+    @Setup
+    public void setup() {
+        userId = new ObjectId().toHexString();
+        List<Conversation> conversations = new ArrayList<>();
+        List<User> partners = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < conversationCount; i++) {
+            User partner = new User();
+            partner.setId(new ObjectId().toHexString());
+            partner.setUsername("user" + i);
+            partner.setFullName("User Number " + i);
+            partners.add(partner);
+
+            Conversation conversation = new Conversation();
+            conversation.setId(Conversation.idFor(userId, partner.getId()));
+            conversation.setOwnerId(userId);
+            conversation.setPartnerId(partner.getId());
+            conversation.setLastMessage("Message " + i);
+            conversation.setLastMessageTime(now.minusMinutes(i));
+            conversation.setUnreadCount(i % 3);
+            conversations.add(conversation);
+        }
+
+        ConversationService conversationService = new ConversationService() {
+            @Override
+            public List<Conversation> findRecent(String ownerId, int limit) {
+                return conversations.subList(0, Math.min(limit, conversations.size()));
+            }
+        };
+
+        chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "mongoTemplate", new InMemoryMongoTemplate(Map.of("users", partners)));
+        ReflectionTestUtils.setField(chatService, "conversationService", conversationService);
+        ReflectionTestUtils.setField(chatService, "maxConversations", 100);
+        ReflectionTestUtils.setField(chatService, "meterRegistry", new SimpleMeterRegistry());
+        chatService.init();
+    }
+
+    @Benchmark
+    public List<ConversationDTO> recentConversations() {
+        return chatService.getRecentConversations(userId, null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.chatapp.backend.benchmark;
+
+import com.mongodb.client.MongoClients;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mongo stand-in for benchmarks: find() returns preloaded documents per collection and ignores the
+ * query. The underlying client never connects because no command is sent through it.
+ */
+class InMemoryMongoTemplate extends MongoTemplate {
+
+    private final Map<String, List<?>> collections;
+
+    InMemoryMongoTemplate(Map<String, List<?>> collections) {
+        super(new SimpleMongoClientDatabaseFactory(MongoClients.create(), "benchmark"));
+        this.collections = collections;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+        return (List<T>) collections.getOrDefault(collectionName, List.of());
+    }
+}
@@ -0,0 +1,44 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The per-request token work done by JwtAuthenticationFilter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret",
+                "ThisIsAVeryLongSelectKeyForJWTTokenGenerationEnsureItIsLongEnough");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 86400000);
+        tokenProvider.init();
+        token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken("benchmark-user", null, List.of()));
+    }
+
+    // Previous filter behaviour: validate, then parse again for the subject
+    @Benchmark
+    public String validateAndReadSubject() {
+        return tokenProvider.validateToken(token) ? tokenProvider.getUsernameFromJWT(token) : null;
+    }
+
+    @Benchmark
+    public Claims parseOnce() {
+        return tokenProvider.parseClaims(token);
+    }
+}
@@ -0,0 +1,54 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.service.MessageDispatcher;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Group messages delivered per second, by group size: converter per recipient vs. MessageDispatcher
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageFanoutBenchmark {
+
+    @Param({ "10", "100", "500" })
+    public int groupSize;
+
+    private SimpMessagingTemplate messagingTemplate;
+    private MessageDispatcher dispatcher;
+    private String[] memberIds;
+    private ChatMessage message;
+
+    @Setup
+    public void setup() {
+        messagingTemplate = BenchmarkSupport.messagingTemplate();
+        dispatcher = new MessageDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(dispatcher, "objectMapper", BenchmarkSupport.objectMapper());
+
+        memberIds = IntStream.range(0, groupSize).mapToObj(i -> new ObjectId().toHexString()).toArray(String[]::new);
+        message = BenchmarkSupport.groupMessage(memberIds[0], new ObjectId().toHexString());
+    }
+
+    @Benchmark
+    public void convertPerRecipient() {
+        for (String memberId : memberIds) {
+            if (!memberId.equals(message.getSenderId())) {
+                messagingTemplate.convertAndSendToUser(memberId, "/queue/messages", message);
+            }
+        }
+    }
+
+    @Benchmark
+    public int serializeOnce() {
+        return dispatcher.sendToUsers(memberIds, message.getSenderId(), "/queue/messages", message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.chatapp.backend.benchmark;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ChatMessage message;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = BenchmarkSupport.objectMapper();
+        message = BenchmarkSupport.directMessage(new ObjectId().toHexString(), new ObjectId().toHexString());
+        json = objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public ChatMessage deserialize() throws Exception {
+        return objectMapper.readValue(json, ChatMessage.class);
+    }
+}
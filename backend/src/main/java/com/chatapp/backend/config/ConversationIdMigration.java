@@ -0,0 +1,61 @@
+package com.chatapp.backend.config;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills ChatMessage.conversationId on messages written before the field existed. Both updates run
+ * as server-side pipeline updates, so no documents are loaded into the application.
+ */
+@Component
+public class ConversationIdMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationIdMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillConversationIds() {
+        try {
+            Query groupMessages = new Query(new Criteria().andOperator(
+                    Criteria.where("conversationId").exists(false),
+                    Criteria.where("groupId").ne(null)));
+            UpdateResult groups = mongoTemplate.updateMulti(groupMessages,
+                    AggregationUpdate.update().set("conversationId").toValueOf("groupId"), ChatMessage.class);
+
+            // Same ordering as ChatMessage.directConversationId: "{smaller id}_{larger id}"
+            Query directMessages = new Query(new Criteria().andOperator(
+                    Criteria.where("conversationId").exists(false),
+                    Criteria.where("groupId").is(null),
+                    Criteria.where("senderId").ne(null),
+                    Criteria.where("recipientId").ne(null)));
+            UpdateResult direct = mongoTemplate.updateMulti(directMessages,
+                    AggregationUpdate.update().set("conversationId").toValue(ConditionalOperators
+                            .when(ComparisonOperators.valueOf("senderId").lessThanEqualTo("recipientId"))
+                            .then(StringOperators.valueOf("senderId").concat("_").concatValueOf("recipientId"))
+                            .otherwise(StringOperators.valueOf("recipientId").concat("_").concatValueOf("senderId"))),
+                    ChatMessage.class);
+
+            if (groups.getModifiedCount() > 0 || direct.getModifiedCount() > 0) {
+                log.info("Backfilled conversationId on {} group and {} direct messages",
+                        groups.getModifiedCount(), direct.getModifiedCount());
+            }
+        } catch (Exception e) {
+            log.error("conversationId backfill failed: {}", e.getMessage(), e);
+        }
+    }
+}
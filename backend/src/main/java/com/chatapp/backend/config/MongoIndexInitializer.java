@@ -0,0 +1,49 @@
+package com.chatapp.backend.config;
+
+import com.chatapp.backend.model.AttachmentRef;
+import com.chatapp.backend.model.ChatGroup;
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Conversation;
+import com.chatapp.backend.model.Delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the annotated indexes of the chat collections on startup. Automatic index creation
+ * stays disabled so that legacy collections (e.g. users) are not touched.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureIndexes(ChatMessage.class);
+        ensureIndexes(Conversation.class);
+        ensureIndexes(AttachmentRef.class);
+        ensureIndexes(Delivery.class);
+        ensureIndexes(ChatGroup.class);
+    }
+
+    private void ensureIndexes(Class<?> entityClass) {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(entityClass);
+            new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                    .resolveIndexFor(entityClass)
+                    .forEach(indexOps::ensureIndex);
+        } catch (Exception e) {
+            log.error("Could not create indexes for {}: {}", entityClass.getSimpleName(), e.getMessage(), e);
+        }
+    }
+}
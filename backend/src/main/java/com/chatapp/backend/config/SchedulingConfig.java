@@ -0,0 +1,21 @@
+package com.chatapp.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // Named "taskScheduler" so @Scheduled jobs do not run on the STOMP broker's heartbeat scheduler
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${chat.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("chat-scheduling-");
+        return scheduler;
+    }
+}
@@ -1,6 +1,7 @@
 package com.chatapp.backend.config;
 
 import com.chatapp.backend.security.JwtAuthenticationFilter;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -23,7 +24,9 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/**", "/api/agora/**", "/ws/**", "/error", "/uploads/**").permitAll()
+                        .requestMatchers("/api/auth/**", "/api/agora/**", "/ws/**", "/ws-native/**", "/error", "/uploads/**").permitAll()
+                        // Scraped on the management port, which is not exposed publicly
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
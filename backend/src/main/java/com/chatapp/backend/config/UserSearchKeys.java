@@ -0,0 +1,84 @@
+package com.chatapp.backend.config;
+
+import com.chatapp.backend.model.User;
+import com.chatapp.backend.service.UserSearchService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps User.searchKeys in sync with username and full name on every save, and on startup creates the
+ * search index and fills in keys for users saved before the field existed.
+ */
+@Component
+public class UserSearchKeys implements BeforeConvertCallback<User> {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchKeys.class);
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    // Lazy: MongoTemplate itself looks up entity callbacks while it is being created
+    @Lazy
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public User onBeforeConvert(User user, String collection) {
+        user.setSearchKeys(UserSearchService.searchKeys(user));
+        return user;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSearchIndex() {
+        try {
+            mongoTemplate.indexOps(User.class).ensureIndex(
+                    new CompoundIndexDefinition(new Document("searchKeys", 1).append("username", 1))
+                            .named("search_keys_username"));
+        } catch (Exception e) {
+            log.error("Could not create the user search index: {}", e.getMessage(), e);
+        }
+
+        try {
+            long updated = 0;
+            List<User> batch;
+            do {
+                Query missing = new Query(Criteria.where("searchKeys").exists(false))
+                        .with(Sort.by("_id"))
+                        .limit(BACKFILL_BATCH_SIZE);
+                missing.fields().include("username").include("fullName");
+                batch = mongoTemplate.find(missing, User.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+                for (User user : batch) {
+                    ops.updateOne(new Query(Criteria.where("_id").is(user.getId())),
+                            new Update().set("searchKeys", UserSearchService.searchKeys(user)));
+                }
+                ops.execute();
+                updated += batch.size();
+            } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+            if (updated > 0) {
+                log.info("Backfilled search keys on {} users", updated);
+            }
+        } catch (Exception e) {
+            log.error("User search key backfill failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.chatapp.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Component
+public class WebSocketMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Lazy
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    // Disconnect events can repeat for one session, so sessions are tracked by id rather than counted
+    private final Set<String> activeSessions = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("chat.websocket.sessions.active", activeSessions, Set::size).register(meterRegistry);
+        Gauge.builder("chat.websocket.users.connected", this, metrics -> metrics.simpUserRegistry.getUserCount())
+                .register(meterRegistry);
+    }
+
+    // Queue size and activity of a client channel executor; rejected tasks run on the caller as backpressure
+    public void monitor(String channel, ThreadPoolTaskExecutor executor) {
+        Gauge.builder("chat.websocket.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("channel", channel).register(meterRegistry);
+        Gauge.builder("chat.websocket.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("channel", channel).register(meterRegistry);
+        Gauge.builder("chat.websocket.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("channel", channel).register(meterRegistry);
+
+        Counter rejected = Counter.builder("chat.websocket.executor.rejected")
+                .tag("channel", channel).register(meterRegistry);
+        RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            callerRuns.rejectedExecution(task, pool);
+        });
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null) {
+            activeSessions.add(sessionId);
+        }
+    }
+
+    // Sessions closed for exceeding the send time or send buffer limits are reported as SESSION_NOT_RELIABLE
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        activeSessions.remove(event.getSessionId());
+        CloseStatus status = event.getCloseStatus();
+        String reason = CloseStatus.SESSION_NOT_RELIABLE.equalsCode(status) ? "slow-client"
+                : CloseStatus.NORMAL.equalsCode(status) ? "normal" : "other";
+        meterRegistry.counter("chat.websocket.sessions.closed", "reason", reason).increment();
+    }
+}
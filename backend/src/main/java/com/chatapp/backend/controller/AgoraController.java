@@ -1,8 +1,13 @@
 
 package com.chatapp.backend.controller;
 
+import com.chatapp.backend.service.AgoraTokenService;
 import com.chatapp.backend.util.AgoraUtil;
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,40 +19,34 @@ import java.util.Map;
 @CrossOrigin(origins = "*") // Allow requests from React Native
 public class AgoraController {
 
-    @Value("${agora.app.id}")
-    private String appId;
+    private static final Logger log = LoggerFactory.getLogger(AgoraController.class);
 
-    @Value("${agora.app.certificate}")
-    private String appCertificate;
+    @Autowired
+    private AgoraTokenService agoraTokenService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @GetMapping("/token")
     public ResponseEntity<Map<String, Object>> getToken(
             @RequestParam String channelName,
             @RequestParam(defaultValue = "0") int uid) {
 
-        System.out.println("Agora Token Request: Channel=" + channelName + ", UID=" + uid);
-        System.out.println("App ID: " + appId); // Do not log certificate for security in prod, but ok for debug
+        log.debug("Agora Token Request: Channel={}, UID={}", channelName, uid);
 
-        if (appId == null || appCertificate == null) {
-            System.err.println("Agora Configuration Missing!");
+        if (!agoraTokenService.isConfigured()) {
+            log.error("Agora Configuration Missing!");
             return ResponseEntity.internalServerError().body(Map.of("error", "Agora Configuration Missing"));
         }
 
-        // Token validity time in seconds (e.g., 24 hours)
-        int expirationTimeInSeconds = 3600 * 24;
-        int privilegeTs = (int) (System.currentTimeMillis() / 1000) + expirationTimeInSeconds;
-
-        String token = "";
+        String token;
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            token = AgoraUtil.buildTokenWithUid(
-                    appId,
-                    appCertificate,
-                    channelName,
-                    uid,
-                    AgoraUtil.Role.Role_Publisher,
-                    privilegeTs);
+            token = agoraTokenService.getToken(channelName, uid, AgoraUtil.Role.Role_Publisher).token();
+            sample.stop(meterRegistry.timer("chat.agora.token", "outcome", "success"));
         } catch (Exception e) {
-            e.printStackTrace();
+            sample.stop(meterRegistry.timer("chat.agora.token", "outcome", "error"));
+            log.error("Could not build Agora token: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
 
@@ -55,7 +54,7 @@ public class AgoraController {
         response.put("token", token);
         response.put("channelName", channelName);
         response.put("uid", uid);
-        response.put("appId", appId);
+        response.put("appId", agoraTokenService.getAppId());
 
         return ResponseEntity.ok(response);
     }
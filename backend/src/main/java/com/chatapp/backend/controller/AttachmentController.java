@@ -0,0 +1,216 @@
+package com.chatapp.backend.controller;
+
+import com.chatapp.backend.service.FileStorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves /uploads/**. Stored names never change content (UUIDs or content hashes), so responses carry
+ * a strong ETag and are cacheable forever. Supports single byte ranges and hands whole files to
+ * Tomcat's sendfile when the connector offers it.
+ */
+@RestController
+public class AttachmentController {
+
+    private static final String UPLOADS_PATH = "/uploads/";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    // Tomcat request attributes for sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // "<name>_<variant>.jpg" of an image upload
+    private static final Pattern VARIANT = Pattern.compile("(.+)_(thumb|small|medium)\\.jpg");
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern STORED_STEM =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{64}");
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter served;
+    private Counter partial;
+    private Counter notModified;
+    private Counter notFound;
+    private Counter variantFallback;
+    private Counter bytesSent;
+
+    @PostConstruct
+    public void init() {
+        served = meterRegistry.counter("chat.attachments.requests", "result", "ok");
+        partial = meterRegistry.counter("chat.attachments.requests", "result", "partial");
+        notModified = meterRegistry.counter("chat.attachments.requests", "result", "not-modified");
+        notFound = meterRegistry.counter("chat.attachments.requests", "result", "not-found");
+        variantFallback = meterRegistry.counter("chat.attachments.requests", "result", "variant-fallback");
+        bytesSent = meterRegistry.counter("chat.attachments.bytes");
+    }
+
+    @GetMapping(UPLOADS_PATH + "**")
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String fileName = request.getRequestURI().substring(
+                request.getContextPath().length() + UPLOADS_PATH.length());
+        Path path;
+        try {
+            path = fileStorageService.resolve(fileName);
+        } catch (RuntimeException e) {
+            notFound.increment();
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        if (!Files.isRegularFile(path)) {
+            // A variant that is missing (not generated yet, dropped, or skipped as too large): point the
+            // client at the original explicitly, and keep the redirect itself out of caches
+            Path original = originalOfVariant(path);
+            if (original == null) {
+                notFound.increment();
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            variantFallback.increment();
+            String directory = fileName.substring(0, fileName.lastIndexOf('/') + 1);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.setStatus(HttpStatus.FOUND.value());
+            response.setHeader(HttpHeaders.LOCATION,
+                    request.getContextPath() + UPLOADS_PATH + directory + original.getFileName());
+            return;
+        }
+
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = etag(path, length, lastModified);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            notModified.increment();
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(path.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = requestedRange(request, etag);
+        if (range != null) {
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            partial.increment();
+        } else {
+            served.increment();
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+        bytesSent.increment(count);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat streams the file from the kernel after this method returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = file.transferTo(position, end + 1 - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    // Content-addressed names are their own hash; other names are unique, so size and mtime suffice
+    private String etag(Path path, long length, long lastModified) {
+        String stem = stripExtension(path.getFileName().toString());
+        if (CONTENT_HASH.matcher(stem).matches()) {
+            return "\"" + stem + "\"";
+        }
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    // Only a single range is honoured, and only while If-Range (if sent) still matches
+    private HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // The stem comes from the request, so it is only compared literally and only if it is a name we issue
+    private Path originalOfVariant(Path variant) throws IOException {
+        Matcher matcher = VARIANT.matcher(variant.getFileName().toString());
+        if (!matcher.matches() || !STORED_STEM.matcher(matcher.group(1)).matches()
+                || !Files.isDirectory(variant.getParent())) {
+            return null;
+        }
+        String stem = matcher.group(1);
+        try (DirectoryStream<Path> candidates = Files.newDirectoryStream(variant.getParent())) {
+            for (Path candidate : candidates) {
+                if (stripExtension(candidate.getFileName().toString()).equals(stem) && Files.isRegularFile(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
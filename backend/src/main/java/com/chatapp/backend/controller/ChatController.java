@@ -1,17 +1,41 @@
 package com.chatapp.backend.controller;
 
+import com.chatapp.backend.dto.MessagePage;
+import com.chatapp.backend.dto.ReceiptDTO;
+import com.chatapp.backend.dto.StoredFile;
+import com.chatapp.backend.dto.SyncPageDTO;
+import com.chatapp.backend.dto.UploadResultDTO;
+import com.chatapp.backend.exception.UploadTooLargeException;
 import com.chatapp.backend.model.ChatMessage;
 import com.chatapp.backend.repository.MessageRepository;
+import com.chatapp.backend.security.AuthenticatedUser;
+import com.chatapp.backend.service.ImageVariantService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.security.Principal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class ChatController {
@@ -25,68 +49,236 @@ public class ChatController {
     @Autowired
     private com.chatapp.backend.service.ChatService chatService;
 
+    @Autowired
+    private com.chatapp.backend.service.ConversationService conversationService;
+
+    @Autowired
+    private com.chatapp.backend.service.MessagePersistenceService messagePersistenceService;
+
     @Autowired
     private com.chatapp.backend.service.FileStorageService fileStorageService;
 
     @Autowired
-    private com.chatapp.backend.repository.ChatGroupRepository chatGroupRepository;
+    private com.chatapp.backend.service.GroupMembershipCache groupMembershipCache;
+
+    @Autowired
+    private com.chatapp.backend.service.MessageDispatcher messageDispatcher;
+
+    @Autowired
+    private com.chatapp.backend.service.AttachmentRefService attachmentRefService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private com.chatapp.backend.service.ReceiptService receiptService;
+
+    @Autowired
+    private com.chatapp.backend.service.DeliveryLogService deliveryLogService;
+
+    @Autowired
+    private com.chatapp.backend.service.TombstoneService tombstoneService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.uploads.max-bytes:104857600}")
+    private long maxUploadBytes;
+
+    private Timer processDirect;
+    private Timer processGroup;
+    private Timer fanoutDirect;
+    private Timer fanoutGroup;
+    private DistributionSummary fanoutRecipients;
+    private Counter rejectedNotMember;
+
+    @PostConstruct
+    public void initMetrics() {
+        processDirect = Timer.builder("chat.messages.process").tag("type", "direct").register(meterRegistry);
+        processGroup = Timer.builder("chat.messages.process").tag("type", "group").register(meterRegistry);
+        fanoutDirect = Timer.builder("chat.messages.fanout").tag("type", "direct").register(meterRegistry);
+        fanoutGroup = Timer.builder("chat.messages.fanout").tag("type", "group").register(meterRegistry);
+        fanoutRecipients = DistributionSummary.builder("chat.messages.fanout.recipients").register(meterRegistry);
+        rejectedNotMember = Counter.builder("chat.messages.rejected").tag("reason", "not-member").register(meterRegistry);
+    }
 
     @MessageMapping("/call")
-    public void processCall(@Payload java.util.Map<String, Object> callSignal) {
+    public void processCall(@Payload java.util.Map<String, Object> callSignal, Principal principal) {
+        if (principal != null) {
+            callSignal.put("senderId", principal.getName());
+        }
         String recipientId = (String) callSignal.get("recipientId");
         if (recipientId != null) {
             messagingTemplate.convertAndSendToUser(recipientId, "/queue/calls", callSignal);
         }
     }
 
+    // Recipient acknowledges delivery/read of everything from partnerId up to messageId
+    @MessageMapping("/receipt")
+    public void processReceipt(@Payload ReceiptDTO receipt, Principal principal) {
+        if (principal != null) {
+            receiptService.acknowledge(principal.getName(), receipt.getPartnerId(), receipt.getMessageId(),
+                    receipt.getStatus());
+        }
+    }
+
+    // Reconnect catch-up: {"since": n} replies on /user/queue/sync; without "since" it returns the current position
+    @MessageMapping("/sync")
+    public void processSync(@Payload Map<String, Object> request, Principal principal) {
+        if (principal == null) {
+            return;
+        }
+        String userId = principal.getName();
+        Object since = request.get("since");
+        Object limit = request.get("limit");
+        SyncPageDTO page = since instanceof Number
+                ? deliveryLogService.sync(userId, ((Number) since).longValue(),
+                        limit instanceof Number ? ((Number) limit).intValue() : null)
+                : new SyncPageDTO(List.of(), deliveryLogService.currentSeq(userId), false);
+        messageDispatcher.sendToUser(userId, "/queue/sync", page);
+    }
+
     @MessageMapping("/chat")
-    public void processMessage(@Payload ChatMessage chatMessage) {
-        chatMessage.setTimestamp(LocalDateTime.now());
+    public void processMessage(@Payload ChatMessage chatMessage, Principal principal) {
+        long start = System.nanoTime();
+        // The session principal is authoritative; never trust the client-supplied sender
+        if (principal != null) {
+            chatMessage.setSenderId(principal.getName());
+        }
+
+        // Id and timestamp are assigned here so the message can be delivered before it is stored
+        chatMessage.setId(new ObjectId().toHexString());
+        chatMessage.setTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
         chatMessage.setStatus(ChatMessage.MessageStatus.RECEIVED);
-        ChatMessage saved = messageRepository.save(chatMessage);
-
-        if (chatMessage.getGroupId() != null) {
-            chatGroupRepository.findById(chatMessage.getGroupId()).ifPresent(group -> {
-                group.getMemberIds().stream()
-                        .filter(memberId -> !memberId.equals(chatMessage.getSenderId()))
-                        .forEach(memberId -> {
-                            messagingTemplate.convertAndSendToUser(
-                                    memberId, "/queue/messages", saved);
-                        });
-            });
+        chatMessage.setConversationId(chatMessage.getGroupId() != null ? chatMessage.getGroupId()
+                : ChatMessage.directConversationId(chatMessage.getSenderId(), chatMessage.getRecipientId()));
+
+        // Clients send uploaded images as the content URL; keep it as the attachment so it is counted
+        if (chatMessage.getAttachmentUrl() == null && chatMessage.getType() == ChatMessage.MessageType.IMAGE
+                && chatMessage.getContent() != null && chatMessage.getContent().contains("/uploads/")) {
+            chatMessage.setAttachmentUrl(chatMessage.getContent());
+        }
+        Map<String, String> variants = ImageVariantService.variantUrls(chatMessage.getAttachmentUrl());
+        chatMessage.setAttachmentVariants(variants.isEmpty() ? null : variants);
+
+        boolean group = chatMessage.getGroupId() != null;
+        if (group) {
+            String[] memberIds = groupMembershipCache.getMembers(chatMessage.getGroupId());
+            if (!Arrays.asList(memberIds).contains(chatMessage.getSenderId())) {
+                rejectedNotMember.increment();
+                // Same channel as persistence acks, so the sender can mark the message as not sent
+                messageDispatcher.sendToUser(chatMessage.getSenderId(), "/queue/acks", Map.of(
+                        "status", "REJECTED",
+                        "messageIds", List.of(chatMessage.getId()),
+                        "groupId", chatMessage.getGroupId(),
+                        "reason", "not-member"));
+                return;
+            }
+            long fanoutStart = System.nanoTime();
+            int recipients = messageDispatcher.sendToUsers(memberIds, chatMessage.getSenderId(), "/queue/messages",
+                    chatMessage);
+            fanoutGroup.record(System.nanoTime() - fanoutStart, TimeUnit.NANOSECONDS);
+            fanoutRecipients.record(recipients);
         } else {
-            messagingTemplate.convertAndSendToUser(
-                    chatMessage.getRecipientId(), "/queue/messages", saved);
+            long fanoutStart = System.nanoTime();
+            messageDispatcher.sendToUser(chatMessage.getRecipientId(), "/queue/messages", chatMessage);
+            fanoutDirect.record(System.nanoTime() - fanoutStart, TimeUnit.NANOSECONDS);
+            fanoutRecipients.record(1);
         }
+
+        // Time until the message is durable is chat.persistence.latency; this covers the enqueue (or write-through)
+        messagePersistenceService.enqueue(chatMessage);
+        (group ? processGroup : processDirect).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
     @GetMapping("/messages/{senderId}/{recipientId}")
     @ResponseBody
     public List<ChatMessage> findChatMessages(@PathVariable String senderId, @PathVariable String recipientId) {
+        return chatService.getLatestDirectMessages(senderId, recipientId);
+    }
+
+    @GetMapping("/messages/{senderId}/{recipientId}/history")
+    @ResponseBody
+    public ResponseEntity<MessagePage> findChatMessagePage(@PathVariable String senderId,
+            @PathVariable String recipientId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
         try {
-            return messageRepository.findBySenderIdAndRecipientIdOrSenderIdAndRecipientIdOrderByTimestampAsc(
-                    senderId, recipientId, recipientId, senderId);
-        } catch (Exception e) {
-            return messageRepository.findBySenderIdAndRecipientId(senderId, recipientId);
+            return ResponseEntity.ok(chatService.getDirectMessagePage(senderId, recipientId, before, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/conversations/{userId}")
     @ResponseBody
-    public List<com.chatapp.backend.dto.ConversationDTO> getRecentConversations(@PathVariable String userId) {
-        return chatService.getRecentConversations(userId);
+    public List<com.chatapp.backend.dto.ConversationDTO> getRecentConversations(@PathVariable String userId,
+            @RequestParam(required = false) Integer limit) {
+        return chatService.getRecentConversations(userId, limit);
+    }
+
+    // Direct conversations and groups merged into one list, newest activity first
+    @GetMapping("/chats/{userId}")
+    @ResponseBody
+    public List<com.chatapp.backend.dto.ChatListItemDTO> getChatList(@PathVariable String userId,
+            @RequestParam(required = false) Integer limit) {
+        return chatService.getChatList(userId, limit);
+    }
+
+    // Reset the unread counter once the user has opened the conversation
+    @PostMapping("/conversations/{userId}/{recipientId}/read")
+    @ResponseBody
+    public ResponseEntity<Void> markConversationRead(@PathVariable String userId, @PathVariable String recipientId) {
+        conversationService.markRead(userId, recipientId);
+        return ResponseEntity.ok().build();
+    }
+
+    // Only the owner of a delivery log may read it
+    @GetMapping("/sync/{userId}")
+    @ResponseBody
+    public ResponseEntity<SyncPageDTO> syncMessages(@PathVariable String userId,
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        if (caller == null || !userId.equals(caller.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (since == null) {
+            return ResponseEntity.ok(new SyncPageDTO(List.of(), deliveryLogService.currentSeq(userId), false));
+        }
+        return ResponseEntity.ok(deliveryLogService.sync(userId, since, limit));
     }
 
     @GetMapping("/messages/group/{groupId}")
     @ResponseBody
     public List<ChatMessage> findGroupMessages(@PathVariable String groupId) {
-        return messageRepository.findByGroupIdOrderByTimestampAsc(groupId);
+        return chatService.getLatestGroupMessages(groupId);
+    }
+
+    @GetMapping("/messages/group/{groupId}/history")
+    @ResponseBody
+    public ResponseEntity<MessagePage> findGroupMessagePage(@PathVariable String groupId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(chatService.getGroupMessagePage(groupId, before, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Delete a single message
     @DeleteMapping("/messages/{messageId}")
     @ResponseBody
     public ResponseEntity<Void> deleteMessage(@PathVariable String messageId) {
+        // Still in the write-behind queue: the writer deletes it once stored, so its attachment ref balances
+        if (messagePersistenceService.deleteWhenPersisted(messageId)) {
+            return ResponseEntity.ok().build();
+        }
+        messageRepository.findById(messageId)
+                .ifPresent(message -> attachmentRefService.release(message.getAttachmentUrl()));
         messageRepository.deleteById(messageId);
         return ResponseEntity.ok().build();
     }
@@ -95,8 +287,10 @@ public class ChatController {
     @DeleteMapping("/conversations/{userId}/{recipientId}")
     @ResponseBody
     public ResponseEntity<Void> deleteConversation(@PathVariable String userId, @PathVariable String recipientId) {
-        messageRepository.deleteBySenderIdAndRecipientIdOrSenderIdAndRecipientId(
-                userId, recipientId, recipientId, userId);
+        // Hidden right away; the messages themselves are removed in the background
+        tombstoneService.delete(ChatMessage.directConversationId(userId, recipientId));
+        conversationService.remove(userId, recipientId);
+        conversationService.remove(recipientId, userId);
         return ResponseEntity.ok().build();
     }
 
@@ -105,10 +299,51 @@ public class ChatController {
     public ResponseEntity<String> uploadAttachment(
             @RequestParam("file") org.springframework.web.multipart.MultipartFile file) {
         String fileName = fileStorageService.storeFile(file);
+        imageVariantService.generateAsync(fileName);
         String fileUrl = org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/uploads/")
                 .path(fileName)
                 .toUriString();
         return ResponseEntity.ok(fileUrl);
     }
+
+    // Lets a client that already knows the file's SHA-256 skip uploading content the server has
+    @GetMapping("/api/chat/upload/{sha256}")
+    @ResponseBody
+    public ResponseEntity<UploadResultDTO> findUploadedAttachment(@PathVariable String sha256,
+            @RequestParam(value = "name", required = false) String name) {
+        return fileStorageService.findContentAddressed(sha256, name)
+                .map(stored -> {
+                    String fileUrl = org.springframework.web.servlet.support.ServletUriComponentsBuilder
+                            .fromCurrentContextPath()
+                            .path("/uploads/")
+                            .path(stored.getFileName())
+                            .toUriString();
+                    return ResponseEntity.ok(new UploadResultDTO(fileUrl, stored.getFileName(), stored.getSize(),
+                            stored.getSha256(), ImageVariantService.variantUrls(fileUrl)));
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Raw-body upload: the body goes straight from the socket to disk, without multipart spooling
+    @PostMapping("/api/chat/upload/stream")
+    @ResponseBody
+    public ResponseEntity<UploadResultDTO> uploadAttachmentStream(HttpServletRequest request,
+            @RequestParam(value = "name", required = false) String name) throws IOException {
+        if (request.getContentLengthLong() > maxUploadBytes) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        try {
+            StoredFile stored = fileStorageService.storeStream(request.getInputStream(), name, maxUploadBytes);
+            imageVariantService.generateAsync(stored.getFileName());
+            String fileUrl = org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/uploads/")
+                    .path(stored.getFileName())
+                    .toUriString();
+            return ResponseEntity.ok(new UploadResultDTO(fileUrl, stored.getFileName(), stored.getSize(),
+                    stored.getSha256(), ImageVariantService.variantUrls(fileUrl)));
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+    }
 }
@@ -2,7 +2,8 @@ package com.chatapp.backend.controller;
 
 import com.chatapp.backend.model.ChatGroup;
 import com.chatapp.backend.repository.ChatGroupRepository;
-import com.chatapp.backend.repository.MessageRepository;
+import com.chatapp.backend.service.GroupMembershipCache;
+import com.chatapp.backend.service.TombstoneService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,7 +19,10 @@ public class GroupController {
     private ChatGroupRepository chatGroupRepository;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private GroupMembershipCache groupMembershipCache;
+
+    @Autowired
+    private TombstoneService tombstoneService;
 
     @PostMapping("/create")
     public ResponseEntity<ChatGroup> createGroup(@RequestBody ChatGroup group) {
@@ -29,8 +33,14 @@ public class GroupController {
         if (group.getOwnerId() != null) {
             group.getMemberIds().add(group.getOwnerId());
         }
+        // The last message preview is maintained by the server
+        group.setLastMessageId(null);
+        group.setLastMessage(null);
+        group.setLastSenderId(null);
+        group.setLastMessageTime(null);
 
         ChatGroup savedGroup = chatGroupRepository.save(group);
+        groupMembershipCache.invalidate(savedGroup.getId());
         return ResponseEntity.ok(savedGroup);
     }
 
@@ -42,8 +52,10 @@ public class GroupController {
 
     @DeleteMapping("/{groupId}")
     public ResponseEntity<Void> deleteGroup(@PathVariable String groupId) {
-        messageRepository.deleteByGroupId(groupId);
+        // Group messages use the group id as conversationId; they are removed in the background
+        tombstoneService.delete(groupId);
         chatGroupRepository.deleteById(groupId);
+        groupMembershipCache.invalidate(groupId);
         return ResponseEntity.ok().build();
     }
 }
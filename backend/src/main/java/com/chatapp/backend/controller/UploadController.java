@@ -0,0 +1,94 @@
+package com.chatapp.backend.controller;
+
+import com.chatapp.backend.dto.StoredFile;
+import com.chatapp.backend.dto.UploadResultDTO;
+import com.chatapp.backend.dto.UploadSessionDTO;
+import com.chatapp.backend.exception.UploadTooLargeException;
+import com.chatapp.backend.service.ChunkedUploadService;
+import com.chatapp.backend.service.ImageVariantService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Resumable chunked uploads: POST to open, PUT chunks by offset (any order, in parallel), GET to see
+ * which offsets are missing after a reconnect, POST .../complete to store the file.
+ */
+@RestController
+@RequestMapping("/api/chat/uploads")
+public class UploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> open(@RequestBody Map<String, Object> payload, Principal principal) {
+        String fileName = (String) payload.get("fileName");
+        Object size = payload.get("size");
+        if (!(size instanceof Number)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(chunkedUploadService.open(principal.getName(), fileName, ((Number) size).longValue()));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> status(@PathVariable String uploadId, Principal principal) {
+        return ResponseEntity.ok(chunkedUploadService.status(principal.getName(), uploadId));
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> writeChunk(@PathVariable String uploadId, @RequestParam("offset") long offset,
+            HttpServletRequest request, Principal principal) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.writeChunk(principal.getName(), uploadId, offset,
+                request.getInputStream()));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadResultDTO> complete(@PathVariable String uploadId, Principal principal) {
+        StoredFile stored = chunkedUploadService.complete(principal.getName(), uploadId);
+        imageVariantService.generateAsync(stored.getFileName());
+        String fileUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/uploads/")
+                .path(stored.getFileName())
+                .toUriString();
+        return ResponseEntity.ok(new UploadResultDTO(fileUrl, stored.getFileName(), stored.getSize(),
+                stored.getSha256(), ImageVariantService.variantUrls(fileUrl)));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId, Principal principal) {
+        chunkedUploadService.abort(principal.getName(), uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<Map<String, String>> tooLarge(UploadTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Map<String, String>> notFound(NoSuchElementException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> conflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+    }
+}
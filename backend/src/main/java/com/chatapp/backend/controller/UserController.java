@@ -1,14 +1,20 @@
 package com.chatapp.backend.controller;
 
+import com.chatapp.backend.dto.PresenceDTO;
+import com.chatapp.backend.dto.UserSummaryDTO;
 import com.chatapp.backend.model.User;
 import com.chatapp.backend.repository.UserRepository;
+import com.chatapp.backend.service.AttachmentRefService;
+import com.chatapp.backend.service.ImageVariantService;
+import com.chatapp.backend.service.PresenceService;
+import com.chatapp.backend.service.UserSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -20,22 +26,36 @@ public class UserController {
     @Autowired
     private com.chatapp.backend.service.FileStorageService fileStorageService;
 
-    @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam(value = "query", required = false) String query,
-            @RequestParam("currentUserId") String currentUserId) {
-        List<User> users;
-        if (query == null || query.trim().isEmpty()) {
-            users = userRepository.findAll();
-        } else {
-            users = userRepository.findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(query, query);
-        }
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private AttachmentRefService attachmentRefService;
 
-        // Filter out current user
-        List<User> filteredUsers = users.stream()
-                .filter(u -> !u.getId().equals(currentUserId))
-                .collect(Collectors.toList());
+    @Autowired
+    private ImageVariantService imageVariantService;
 
-        return ResponseEntity.ok(filteredUsers);
+    @Value("${chat.presence.max-ids:200}")
+    private int maxPresenceIds;
+
+    @GetMapping("/search")
+    public ResponseEntity<List<UserSummaryDTO>> searchUsers(
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam("currentUserId") String currentUserId,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(userSearchService.search(query, currentUserId, page, size));
+    }
+
+    @GetMapping("/presence")
+    public ResponseEntity<List<PresenceDTO>> getPresence(@RequestParam("ids") List<String> ids) {
+        if (ids.size() > maxPresenceIds) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(presenceService.getPresence(ids));
     }
 
     @PutMapping("/{userId}")
@@ -56,6 +76,7 @@ public class UserController {
     public ResponseEntity<User> uploadAvatar(@RequestParam("file") org.springframework.web.multipart.MultipartFile file,
             @RequestParam("userId") String userId) {
         String fileName = fileStorageService.storeFile(file);
+        imageVariantService.generateAsync(fileName);
         String fileUrl = org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/uploads/")
                 .path(fileName)
@@ -64,9 +85,17 @@ public class UserController {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        String previousAvatar = user.getAvatar();
         user.setAvatar(fileUrl);
+        Map<String, String> variants = ImageVariantService.variantUrls(fileUrl);
+        user.setAvatarVariants(variants.isEmpty() ? null : variants);
         userRepository.save(user);
 
+        if (!fileUrl.equals(previousAvatar)) {
+            attachmentRefService.retain(fileUrl);
+            attachmentRefService.release(previousAvatar);
+        }
+
         return ResponseEntity.ok(user);
     }
 }
@@ -0,0 +1,25 @@
+package com.chatapp.backend.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// One row of the merged chat list: a direct conversation (id = partner user id) or a group (id = group id)
+@Data
+public class ChatListItemDTO {
+    private Type type;
+    private String id;
+    private String name;
+    private String username; // direct only
+    private String avatar;
+    private Map<String, String> avatarVariants;
+    private String lastMessage;
+    private String lastSenderId;
+    private LocalDateTime timestamp;
+    private int unreadCount; // direct only
+    private int memberCount; // group only
+
+    public enum Type {
+        DIRECT, GROUP
+    }
+}
@@ -2,6 +2,7 @@ package com.chatapp.backend.dto;
 
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 public class ConversationDTO {
@@ -9,6 +10,9 @@ public class ConversationDTO {
     private String username;
     private String fullName;
     private String avatar;
+    private Map<String, String> avatarVariants;
     private String lastMessage;
+    private String lastSenderId;
     private LocalDateTime timestamp;
+    private int unreadCount;
 }
@@ -0,0 +1,43 @@
+package com.chatapp.backend.dto;
+
+import com.chatapp.backend.model.ChatMessage;
+import lombok.Data;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Opaque keyset cursor over (timestamp, id), encoded as "{epochMillis}_{id}".
+ */
+@Data
+public class MessageCursor {
+    private final LocalDateTime timestamp;
+    private final ObjectId id;
+
+    public static String encode(ChatMessage message) {
+        if (message == null || message.getTimestamp() == null || message.getId() == null) {
+            return null;
+        }
+        return message.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli() + "_" + message.getId();
+    }
+
+    public static MessageCursor decode(String cursor) {
+        int separator = cursor.indexOf('_');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        String id = cursor.substring(separator + 1);
+        if (!ObjectId.isValid(id)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            long millis = Long.parseLong(cursor.substring(0, separator));
+            return new MessageCursor(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC),
+                    new ObjectId(id));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.chatapp.backend.dto;
+
+import com.chatapp.backend.model.ChatMessage;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MessagePage {
+    private List<ChatMessage> messages; // Newest first
+    private String nextCursor; // Pass as "before" to load older messages
+    private String prevCursor; // Pass as "after" to load newer messages
+    private boolean hasMore; // More messages exist in the requested direction
+}
@@ -0,0 +1,16 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDTO {
+    private String userId;
+    private boolean online;
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,16 @@
+package com.chatapp.backend.dto;
+
+import com.chatapp.backend.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Sent by a recipient: every message from partnerId up to and including messageId has reached status
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptDTO {
+    private String partnerId;
+    private String messageId;
+    private ChatMessage.MessageStatus status;
+}
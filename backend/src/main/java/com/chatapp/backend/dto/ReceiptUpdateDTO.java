@@ -0,0 +1,16 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pushed to a sender: readerId has received (and possibly read) that sender's messages up to these ids
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptUpdateDTO {
+    private String readerId;
+    private String conversationId;
+    private String deliveredUpTo;
+    private String readUpTo;
+}
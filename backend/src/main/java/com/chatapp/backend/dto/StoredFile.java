@@ -0,0 +1,12 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StoredFile {
+    private final String fileName;
+    private final long size;
+    private final String sha256;
+}
@@ -0,0 +1,17 @@
+package com.chatapp.backend.dto;
+
+import com.chatapp.backend.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncPageDTO {
+    private List<ChatMessage> messages; // Oldest first, across all conversations
+    private long lastSeq; // Pass as "since" for the next page / next reconnect
+    private boolean hasMore;
+}
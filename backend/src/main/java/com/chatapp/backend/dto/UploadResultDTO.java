@@ -0,0 +1,18 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResultDTO {
+    private String url;
+    private String fileName;
+    private long size;
+    private String sha256;
+    private Map<String, String> variants;
+}
@@ -0,0 +1,20 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private List<Long> missingOffsets; // Offsets of chunks not received yet; empty when ready to complete
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,19 @@
+package com.chatapp.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private String id;
+    private String username;
+    private String fullName;
+    private String avatar;
+    private Map<String, String> avatarVariants;
+    private String status;
+}
@@ -0,0 +1,24 @@
+package com.chatapp.backend.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference count of a content-addressed upload. The id is the stored path below the upload
+ * directory, e.g. "cas/ab/cd/abcd...ef.jpg".
+ */
+@Data
+@Document(collection = "attachment_refs")
+public class AttachmentRef {
+    @Id
+    private String id;
+    private long refCount;
+
+    // Set when the count drops to zero; the file is removed once this is older than the grace period
+    @Indexed(sparse = true)
+    private LocalDateTime orphanedAt;
+}
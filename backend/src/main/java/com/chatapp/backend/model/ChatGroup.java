@@ -2,13 +2,16 @@ package com.chatapp.backend.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
 @Data
 @Document(collection = "chat_groups")
+@CompoundIndex(name = "member_last_message", def = "{'memberIds': 1, 'lastMessageTime': -1}")
 public class ChatGroup {
     @Id
     private String id;
@@ -17,6 +20,9 @@ public class ChatGroup {
     private String ownerId;
     private Set<String> memberIds;
     private List<String> adminIds;
-    private String lastMessage; // Optional: for list preview
-    private String lastMessageTime;
+    // Preview for the chat list, maintained by GroupActivityService
+    private String lastMessageId;
+    private String lastMessage;
+    private String lastSenderId;
+    private LocalDateTime lastMessageTime;
 }
@@ -2,26 +2,39 @@ package com.chatapp.backend.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Document(collection = "messages")
+@CompoundIndexes({
+        @CompoundIndex(name = "conversation_timestamp", def = "{'conversationId': 1, 'timestamp': -1, '_id': -1}"),
+        @CompoundIndex(name = "group_timestamp", def = "{'groupId': 1, 'timestamp': -1, '_id': -1}")
+})
 public class ChatMessage {
     @Id
     private String id;
     private String senderId;
     private String recipientId; // Can be null if groupId is present
     private String groupId;
+    private String conversationId; // Sorted pair of user ids for direct chats, the group id for groups
     private String content;
     private LocalDateTime timestamp;
     private MessageStatus status;
     private MessageType type;
     private String attachmentUrl;
+    private Map<String, String> attachmentVariants; // Downscaled image URLs by variant name (thumb, small, medium)
+
+    public static String directConversationId(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0 ? userId + "_" + otherUserId : otherUserId + "_" + userId;
+    }
 
     public enum MessageStatus {
-        RECEIVED, DELIVERED
+        RECEIVED, DELIVERED, READ
     }
 
     public enum MessageType {
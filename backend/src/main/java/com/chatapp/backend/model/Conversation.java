@@ -0,0 +1,28 @@
+package com.chatapp.backend.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Read model for the chat list: one document per (owner, partner) pair, maintained on the message write path
+@Data
+@Document(collection = "conversations")
+@CompoundIndex(name = "owner_last_message", def = "{'ownerId': 1, 'lastMessageTime': -1}")
+public class Conversation {
+    @Id
+    private String id;
+    private String ownerId;
+    private String partnerId;
+    private String lastMessageId;
+    private String lastMessage;
+    private String lastSenderId;
+    private LocalDateTime lastMessageTime;
+    private int unreadCount;
+
+    public static String idFor(String ownerId, String partnerId) {
+        return ownerId + "_" + partnerId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.chatapp.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * One entry of a user's delivery log: the seq-th message stored for that user, across all of their
+ * conversations. Entries expire after the configured retention.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "deliveries")
+@CompoundIndex(name = "user_seq", def = "{'userId': 1, 'seq': 1}", unique = true)
+public class Delivery {
+    @Id
+    private String id;
+    private String userId;
+    private long seq;
+    private String messageId;
+
+    @Indexed(name = "created_ttl", expireAfter = "30d")
+    private Date createdAt;
+}
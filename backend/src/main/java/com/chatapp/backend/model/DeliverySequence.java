@@ -0,0 +1,14 @@
+package com.chatapp.backend.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Last delivery sequence number handed out per user; the id is the user id
+@Data
+@Document(collection = "delivery_sequences")
+public class DeliverySequence {
+    @Id
+    private String id;
+    private long seq;
+}
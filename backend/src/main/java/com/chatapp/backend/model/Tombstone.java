@@ -0,0 +1,25 @@
+package com.chatapp.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deleted conversation (direct pair or group) whose messages are still being removed. Messages with
+ * ids up to and including cutoff are hidden immediately and deleted in the background; the id is the
+ * conversationId.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "tombstones")
+public class Tombstone {
+    @Id
+    private String id;
+    private String cutoff;
+    private LocalDateTime createdAt;
+}
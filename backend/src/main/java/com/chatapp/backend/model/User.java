@@ -1,5 +1,6 @@
 package com.chatapp.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
@@ -10,6 +11,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @Document(collection = "users")
@@ -30,10 +33,15 @@ public class User implements UserDetails {
 
     private String fullName;
     private String avatar;
+    private Map<String, String> avatarVariants;
     private String status;
     private LocalDateTime lastSeen;
     private boolean online;
 
+    // Lower-cased word prefixes of username and fullName, maintained by UserSearchKeys
+    @JsonIgnore
+    private List<String> searchKeys;
+
     private Role role;
 
     @Override
@@ -0,0 +1,13 @@
+package com.chatapp.backend.repository;
+
+import com.chatapp.backend.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConversationRepository extends MongoRepository<Conversation, String> {
+    List<Conversation> findByOwnerIdOrderByLastMessageTimeDesc(String ownerId, Pageable pageable);
+}
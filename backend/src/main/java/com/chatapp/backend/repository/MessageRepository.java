@@ -1,22 +1,28 @@
 package com.chatapp.backend.repository;
 
 import com.chatapp.backend.model.ChatMessage;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends MongoRepository<ChatMessage, String> {
-    List<ChatMessage> findBySenderIdAndRecipientId(String senderId, String recipientId);
+    // Keyset pagination over {conversationId, timestamp, _id}: page order and size come from the Pageable.
+    // Only messages with an _id above "floor" are returned (the tombstone cutoff of a deleted conversation).
 
-    List<ChatMessage> findBySenderIdAndRecipientIdOrSenderIdAndRecipientIdOrderByTimestampAsc(
-            String senderId1, String recipientId1, String senderId2, String recipientId2);
+    @Query("{ 'conversationId': ?0, '_id': { '$gt': ?1 } }")
+    List<ChatMessage> findConversationMessages(String conversationId, ObjectId floor, Pageable pageable);
 
-    List<ChatMessage> findByGroupIdOrderByTimestampAsc(String groupId);
+    @Query("{ 'conversationId': ?0, '_id': { '$gt': ?3 }, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<ChatMessage> findConversationMessagesBefore(String conversationId, LocalDateTime timestamp, ObjectId id,
+            ObjectId floor, Pageable pageable);
 
-    void deleteBySenderIdAndRecipientIdOrSenderIdAndRecipientId(
-            String senderId1, String recipientId1, String senderId2, String recipientId2);
-
-    void deleteByGroupId(String groupId);
+    @Query("{ 'conversationId': ?0, '_id': { '$gt': ?3 }, '$or': [ { 'timestamp': { '$gt': ?1 } }, { 'timestamp': ?1, '_id': { '$gt': ?2 } } ] }")
+    List<ChatMessage> findConversationMessagesAfter(String conversationId, LocalDateTime timestamp, ObjectId id,
+            ObjectId floor, Pageable pageable);
 }
@@ -21,7 +21,4 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByPhoneNumber(String phoneNumber);
 
     Boolean existsByPhoneNumber(String phoneNumber);
-
-    java.util.List<User> findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(String username,
-            String fullName);
 }
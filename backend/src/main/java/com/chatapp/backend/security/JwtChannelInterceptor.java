@@ -0,0 +1,92 @@
+package com.chatapp.backend.security;
+
+import com.chatapp.backend.service.PresenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates a STOMP session once, on CONNECT. The principal set here is remembered for the session
+ * and attached to every later frame, so per-frame checks need neither the token nor the database.
+ * Subscriptions to someone's presence topic are only let through for people related to them.
+ */
+@Component
+public class JwtChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtChannelInterceptor.class);
+
+    private static final String PRESENCE_TOPIC = "/topic/presence/";
+    private static final Pattern WILDCARDS = Pattern.compile("[*#{]");
+
+    @Autowired
+    private JwtPrincipalCache jwtPrincipalCache;
+
+    // Lazy: the presence service sends through the broker this interceptor is part of
+    @Lazy
+    @Autowired
+    private PresenceService presenceService;
+
+    @Value("${chat.websocket.require-auth:true}")
+    private boolean requireAuth;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return maySubscribe(accessor) ? message : null;
+        }
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        AuthenticatedUser user = null;
+        if (StringUtils.hasText(authorization) && authorization.startsWith("Bearer ")) {
+            user = jwtPrincipalCache.resolve(authorization.substring(7));
+        }
+
+        if (user != null) {
+            accessor.setUser(new StompPrincipal(user.getId(), user.getUsername()));
+        } else if (requireAuth) {
+            throw new BadCredentialsException("Missing or invalid access token");
+        }
+        return message;
+    }
+
+    // A refused subscription is dropped rather than failed, which would close the whole session
+    private boolean maySubscribe(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return true;
+        }
+        // Broker patterns ("/topic/**", "/topic/presence.#") would match every presence topic at once
+        if (WILDCARDS.matcher(destination).find()) {
+            log.debug("Refused pattern subscription to {}", destination);
+            return false;
+        }
+        if (!destination.startsWith(PRESENCE_TOPIC)) {
+            return true;
+        }
+        Principal user = accessor.getUser();
+        String userId = destination.substring(PRESENCE_TOPIC.length());
+        if (user != null && presenceService.canWatch(user.getName(), userId)) {
+            return true;
+        }
+        log.debug("Refused presence subscription of {} to {}", user != null ? user.getName() : null, userId);
+        return false;
+    }
+}
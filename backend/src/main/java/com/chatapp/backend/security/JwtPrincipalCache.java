@@ -0,0 +1,88 @@
+package com.chatapp.backend.security;
+
+import com.chatapp.backend.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Maps verified tokens to their user, so repeated requests with the same token skip both JWT parsing
+ * and the user lookup. Entries live for at most the configured TTL and never past the token's expiry,
+ * and are dropped as soon as the user is saved or deleted (see {@link UserChangeListener}).
+ */
+@Component
+public class JwtPrincipalCache {
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private UserDetailsService customUserDetailsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${jwt.principal-cache.ttl:5m}")
+    private Duration ttl;
+
+    private Cache<String, CachedPrincipal> principals;
+
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "jwtPrincipals");
+    }
+
+    // Returns the user for a valid token, or null if the token is invalid or expired
+    public AuthenticatedUser resolve(String token) {
+        CachedPrincipal cached = principals.getIfPresent(token);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.user();
+            }
+            principals.invalidate(token);
+            return null;
+        }
+
+        Claims claims = tokenProvider.parseClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        UserDetails details = customUserDetailsService.loadUserByUsername(claims.getSubject());
+        AuthenticatedUser user = details instanceof User entity ? AuthenticatedUser.of(entity)
+                : new AuthenticatedUser(details.getUsername(), details.getUsername(), details.getAuthorities());
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        principals.put(token, new CachedPrincipal(user, expiresAt));
+        return user;
+    }
+
+    public void invalidateUser(String userId) {
+        if (userId != null) {
+            principals.asMap().values().removeIf(cached -> userId.equals(cached.user().getId()));
+        }
+    }
+
+    public void invalidateAll() {
+        principals.invalidateAll();
+    }
+
+    private record CachedPrincipal(AuthenticatedUser user, long expiresAt) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.chatapp.backend.security;
+
+import java.security.Principal;
+
+// Principal of an authenticated STOMP session; its name is the user id used in /user destinations
+public class StompPrincipal implements Principal {
+
+    private final String userId;
+    private final String username;
+
+    public StompPrincipal(String userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    @Override
+    public String getName() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return "StompPrincipal[" + userId + "]";
+    }
+}
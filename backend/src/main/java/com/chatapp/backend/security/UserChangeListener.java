@@ -0,0 +1,34 @@
+package com.chatapp.backend.security;
+
+import com.chatapp.backend.model.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Drops cached token principals of a user whenever that user is saved or deleted on this node
+@Component
+public class UserChangeListener extends AbstractMongoEventListener<User> {
+
+    @Autowired
+    private JwtPrincipalCache jwtPrincipalCache;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        jwtPrincipalCache.invalidateUser(event.getSource().getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Document filter = event.getSource();
+        Object id = filter.get("_id");
+        if (id instanceof Document || id == null) {
+            // Deleted by a query rather than by id
+            jwtPrincipalCache.invalidateAll();
+        } else {
+            jwtPrincipalCache.invalidateUser(id.toString());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.util.AgoraUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Hands out Agora RTC tokens, reusing a recently built token for the same channel, uid and role while
+ * it still has enough validity left. During a group call setup every participant asks at once;
+ * concurrent requests for the same key build the token only once.
+ */
+@Service
+public class AgoraTokenService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${agora.app.id}")
+    private String appId;
+
+    @Value("${agora.app.certificate}")
+    private String appCertificate;
+
+    @Value("${agora.token.validity:24h}")
+    private Duration validity;
+
+    @Value("${agora.token.cache.ttl:5m}")
+    private Duration cacheTtl;
+
+    @Value("${agora.token.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    // A cached token is only handed out while it stays valid at least this long
+    @Value("${agora.token.cache.min-remaining:1h}")
+    private Duration minRemaining;
+
+    private Cache<TokenKey, IssuedToken> tokens;
+
+    @PostConstruct
+    public void init() {
+        tokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "agoraTokens");
+    }
+
+    public boolean isConfigured() {
+        return appId != null && !appId.isEmpty() && appCertificate != null && !appCertificate.isEmpty();
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public IssuedToken getToken(String channelName, int uid, AgoraUtil.Role role) {
+        TokenKey key = new TokenKey(channelName, uid, role);
+        IssuedToken token = tokens.get(key, this::build);
+        if (token.expiresAt() - System.currentTimeMillis() < minRemaining.toMillis()) {
+            token = build(key);
+            tokens.put(key, token);
+        }
+        return token;
+    }
+
+    private IssuedToken build(TokenKey key) {
+        long now = System.currentTimeMillis();
+        int privilegeTs = (int) ((now + validity.toMillis()) / 1000);
+        String token = AgoraUtil.buildTokenWithUid(appId, appCertificate, key.channelName(), key.uid(), key.role(),
+                privilegeTs);
+        return new IssuedToken(token, privilegeTs * 1000L);
+    }
+
+    private record TokenKey(String channelName, int uid, AgoraUtil.Role role) {
+    }
+
+    public record IssuedToken(String token, long expiresAt) {
+    }
+}
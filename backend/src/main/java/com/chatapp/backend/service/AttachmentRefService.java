@@ -0,0 +1,176 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.AttachmentRef;
+import com.chatapp.backend.model.ChatMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Reference counts for content-addressed uploads, keyed by stored path. Messages retain their
+ * attachment when they are persisted, avatars when they are set; deletes and replacements release.
+ * Every stored upload starts with a zero count, and a file whose count reaches zero is only removed
+ * after a grace period, so an upload that is about to be referenced is not lost.
+ */
+@Service
+public class AttachmentRefService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentRefService.class);
+
+    private static final String UPLOADS_PATH = "/uploads/";
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.uploads.orphan-grace:1h}")
+    private Duration orphanGrace;
+
+    public void retainMessages(Collection<ChatMessage> messages) {
+        Map<String, Long> counts = new HashMap<>();
+        for (ChatMessage message : messages) {
+            String path = storedPath(message.getAttachmentUrl());
+            if (path != null) {
+                counts.merge(path, 1L, Long::sum);
+            }
+        }
+        adjust(counts, 1);
+    }
+
+    public void retain(String url) {
+        String path = storedPath(url);
+        if (path != null) {
+            adjust(Map.of(path, 1L), 1);
+        }
+    }
+
+    public void release(String url) {
+        String path = storedPath(url);
+        if (path != null) {
+            adjust(Map.of(path, 1L), -1);
+        }
+    }
+
+    public void releaseAll(Collection<String> urls) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String url : urls) {
+            String path = storedPath(url);
+            if (path != null) {
+                counts.merge(path, 1L, Long::sum);
+            }
+        }
+        adjust(counts, -1);
+    }
+
+    /**
+     * Stored or re-offered content starts (or restarts) its grace period, so an upload that no message
+     * ever references is still swept, and one being reused is not swept from under its uploader.
+     */
+    @EventListener
+    public void onContentStored(FileStorageService.ContentStoredEvent event) {
+        Query unreferenced = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(event.fileName()),
+                Criteria.where("refCount").lte(0)));
+        try {
+            mongoTemplate.upsert(unreferenced,
+                    new Update().set("orphanedAt", LocalDateTime.now()).setOnInsert("refCount", 0),
+                    AttachmentRef.class);
+        } catch (DuplicateKeyException e) {
+            // The ref exists with a positive count; the file is in use and not due for removal
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.uploads.orphan-sweep-interval-ms:600000}")
+    public void removeOrphans() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(orphanGrace);
+        Criteria orphaned = new Criteria().andOperator(
+                Criteria.where("refCount").lte(0),
+                Criteria.where("orphanedAt").lte(cutoff));
+        int removed = 0;
+        List<AttachmentRef> candidates;
+        do {
+            candidates = mongoTemplate.find(new Query(orphaned).limit(SWEEP_BATCH_SIZE), AttachmentRef.class);
+            for (AttachmentRef candidate : candidates) {
+                String path = candidate.getId();
+                Query byId = new Query(Criteria.where("_id").is(path));
+                // Under the path lock no upload can claim the content; findAndRemove re-checks the count,
+                // and a ref re-created by a retain in between keeps the file
+                boolean deleted = fileStorageService.deleteIf(path, () ->
+                        mongoTemplate.findAndRemove(new Query(new Criteria().andOperator(
+                                Criteria.where("_id").is(path), orphaned)), AttachmentRef.class) != null
+                                && !mongoTemplate.exists(byId, AttachmentRef.class));
+                if (deleted) {
+                    imageVariantService.deleteVariants(path);
+                    removed++;
+                }
+            }
+        } while (candidates.size() == SWEEP_BATCH_SIZE);
+        if (removed > 0) {
+            meterRegistry.counter("chat.uploads.orphans.removed").increment(removed);
+            log.info("Removed {} unreferenced uploads", removed);
+        }
+    }
+
+    private void adjust(Map<String, Long> counts, int sign) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AttachmentRef.class);
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            Query byId = new Query(Criteria.where("_id").is(entry.getKey()));
+            if (sign > 0) {
+                ops.upsert(byId, new Update().inc("refCount", entry.getValue()).unset("orphanedAt"));
+            } else {
+                ops.updateOne(byId, new Update().inc("refCount", -entry.getValue()));
+            }
+        }
+        ops.execute();
+
+        if (sign < 0) {
+            // Stamp newly orphaned files; the sweep only removes them after the grace period
+            mongoTemplate.updateMulti(new Query(new Criteria().andOperator(
+                            Criteria.where("_id").in(counts.keySet()),
+                            Criteria.where("refCount").lte(0),
+                            Criteria.where("orphanedAt").exists(false))),
+                    new Update().set("orphanedAt", LocalDateTime.now()), AttachmentRef.class);
+        }
+    }
+
+    // Only content-addressed files are counted; per-upload UUID files are never shared
+    static String storedPath(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start = url.indexOf(UPLOADS_PATH);
+        if (start < 0) {
+            return null;
+        }
+        String path = url.substring(start + UPLOADS_PATH.length());
+        return path.startsWith(FileStorageService.CONTENT_ADDRESSED_DIR + "/") ? path : null;
+    }
+}
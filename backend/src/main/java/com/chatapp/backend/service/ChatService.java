@@ -1,18 +1,35 @@
 package com.chatapp.backend.service;
 
+import com.chatapp.backend.dto.ChatListItemDTO;
 import com.chatapp.backend.dto.ConversationDTO;
+import com.chatapp.backend.dto.MessageCursor;
+import com.chatapp.backend.dto.MessagePage;
+import com.chatapp.backend.model.ChatGroup;
 import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Conversation;
 import com.chatapp.backend.model.User;
 import com.chatapp.backend.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,64 +38,229 @@ public class ChatService {
 
         private static final Logger log = LoggerFactory.getLogger(ChatService.class);
 
+        private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestamp")
+                        .and(Sort.by(Sort.Direction.DESC, "id"));
+        private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "timestamp")
+                        .and(Sort.by(Sort.Direction.ASC, "id"));
+
+        // Lowest possible ObjectId: no message is hidden
+        private static final ObjectId NO_FLOOR = new ObjectId(new byte[12]);
+
         @Autowired
         private MongoTemplate mongoTemplate;
 
-        public List<ConversationDTO> getRecentConversations(String userId) {
-                try {
-                        // 1. Find all direct messages involving this user, sorted by newest first
-                        Query query = new Query();
-                        query.addCriteria(new Criteria().andOperator(
-                                        new Criteria().orOperator(
-                                                        Criteria.where("groupId").exists(false),
-                                                        Criteria.where("groupId").is(null)),
-                                        new Criteria().orOperator(
-                                                        Criteria.where("senderId").is(userId),
-                                                        Criteria.where("recipientId").is(userId))));
-                        query.with(Sort.by(Sort.Direction.DESC, "timestamp"));
-
-                        List<ChatMessage> messages = mongoTemplate.find(query, ChatMessage.class, "messages");
-
-                        // 2. Group by conversation partner, keeping only the latest message per partner
-                        Map<String, ChatMessage> latestByPartner = new LinkedHashMap<>();
-                        for (ChatMessage msg : messages) {
-                                String partnerId = msg.getSenderId().equals(userId) ? msg.getRecipientId()
-                                                : msg.getSenderId();
-                                if (partnerId != null && !latestByPartner.containsKey(partnerId)) {
-                                        latestByPartner.put(partnerId, msg);
-                                }
-                        }
+        @Autowired
+        private MessageRepository messageRepository;
+
+        @Autowired
+        private ConversationService conversationService;
+
+        @Autowired
+        private TombstoneService tombstoneService;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Value("${chat.history.default-page-size:50}")
+        private int defaultPageSize;
+
+        @Value("${chat.history.max-page-size:200}")
+        private int maxPageSize;
+
+        @Value("${chat.conversations.max-limit:100}")
+        private int maxConversations;
+
+        private Timer recentConversationsTimer;
+        private Timer chatListTimer;
+
+        @PostConstruct
+        public void init() {
+                recentConversationsTimer = Timer.builder("chat.conversations.list").tag("list", "direct")
+                                .register(meterRegistry);
+                chatListTimer = Timer.builder("chat.conversations.list").tag("list", "merged").register(meterRegistry);
+        }
+
+        public MessagePage getDirectMessagePage(String userId, String partnerId, String before, String after,
+                        Integer limit) {
+                return getConversationPage(ChatMessage.directConversationId(userId, partnerId), before, after, limit);
+        }
+
+        public MessagePage getGroupMessagePage(String groupId, String before, String after, Integer limit) {
+                return getConversationPage(groupId, before, after, limit);
+        }
+
+        // Latest page in chronological order, for the legacy list endpoints
+        public List<ChatMessage> getLatestDirectMessages(String userId, String partnerId) {
+                return chronological(getDirectMessagePage(userId, partnerId, null, null, maxPageSize));
+        }
+
+        public List<ChatMessage> getLatestGroupMessages(String groupId) {
+                return chronological(getGroupMessagePage(groupId, null, null, maxPageSize));
+        }
+
+        private MessagePage getConversationPage(String conversationId, String before, String after, Integer limit) {
+                int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+                // A deleted conversation hides everything up to its tombstone until the reaper has removed it
+                String cutoff = tombstoneService.cutoff(conversationId);
+                ObjectId floor = cutoff != null ? new ObjectId(cutoff) : NO_FLOOR;
+
+                // Fetch one extra row to know whether another page exists without a count query
+                List<ChatMessage> rows;
+                if (after != null) {
+                        MessageCursor cursor = MessageCursor.decode(after);
+                        rows = messageRepository.findConversationMessagesAfter(conversationId, cursor.getTimestamp(),
+                                        cursor.getId(), floor, PageRequest.of(0, size + 1, OLDEST_FIRST));
+                } else if (before != null) {
+                        MessageCursor cursor = MessageCursor.decode(before);
+                        rows = messageRepository.findConversationMessagesBefore(conversationId, cursor.getTimestamp(),
+                                        cursor.getId(), floor, PageRequest.of(0, size + 1, NEWEST_FIRST));
+                } else {
+                        rows = messageRepository.findConversationMessages(conversationId, floor,
+                                        PageRequest.of(0, size + 1, NEWEST_FIRST));
+                }
+
+                boolean hasMore = rows.size() > size;
+                List<ChatMessage> messages = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+                if (after != null) {
+                        Collections.reverse(messages);
+                }
+
+                MessagePage page = new MessagePage();
+                page.setMessages(messages);
+                page.setHasMore(hasMore);
+                if (!messages.isEmpty()) {
+                        page.setPrevCursor(MessageCursor.encode(messages.get(0)));
+                        page.setNextCursor(MessageCursor.encode(messages.get(messages.size() - 1)));
+                }
+                return page;
+        }
+
+        private List<ChatMessage> chronological(MessagePage page) {
+                List<ChatMessage> messages = new ArrayList<>(page.getMessages());
+                Collections.reverse(messages);
+                return messages;
+        }
+
+        public List<ConversationDTO> getRecentConversations(String userId, Integer limit) {
+                return recentConversationsTimer.record(() -> loadRecentConversations(userId, limit));
+        }
 
-                        if (latestByPartner.isEmpty()) {
+        private List<ConversationDTO> loadRecentConversations(String userId, Integer limit) {
+                try {
+                        // 1. Read the latest conversations from the per-user read model
+                        int size = limit == null ? maxConversations : Math.max(1, Math.min(limit, maxConversations));
+                        List<Conversation> conversations = conversationService.findRecent(userId, size);
+                        if (conversations.isEmpty()) {
                                 return Collections.emptyList();
                         }
 
-                        // 3. Lookup user details for all partner IDs
-                        Query userQuery = new Query(Criteria.where("_id").in(latestByPartner.keySet()));
+                        // 2. Lookup user details for all partner IDs
+                        Set<String> partnerIds = conversations.stream()
+                                        .map(Conversation::getPartnerId)
+                                        .collect(Collectors.toSet());
+                        Query userQuery = new Query(Criteria.where("_id").in(partnerIds));
+                        userQuery.fields().include("username", "fullName", "avatar", "avatarVariants");
                         List<User> users = mongoTemplate.find(userQuery, User.class, "users");
                         Map<String, User> userMap = users.stream().collect(Collectors.toMap(User::getId, u -> u));
 
-                        // 4. Build DTOs
-                        List<ConversationDTO> result = new ArrayList<>();
-                        for (Map.Entry<String, ChatMessage> entry : latestByPartner.entrySet()) {
-                                String partnerId = entry.getKey();
-                                ChatMessage msg = entry.getValue();
-                                User partner = userMap.get(partnerId);
-
-                                ConversationDTO dto = new ConversationDTO();
-                                dto.setUserId(partnerId);
-                                dto.setUsername(partner != null ? partner.getUsername() : "Unknown");
-                                dto.setFullName(partner != null ? partner.getFullName() : "Unknown User");
-                                dto.setAvatar(partner != null ? partner.getAvatar() : null);
-                                dto.setLastMessage(msg.getContent());
-                                dto.setTimestamp(msg.getTimestamp());
-                                result.add(dto);
-                        }
-
-                        return result;
+                        // 3. Build DTOs
+                        return toConversationDTOs(conversations, userMap);
                 } catch (Exception e) {
                         log.error("Error fetching conversations for user {}: {}", userId, e.getMessage(), e);
                         return Collections.emptyList();
                 }
         }
+
+        /**
+         * Direct conversations and groups in one list, newest activity first. Each side is read with an
+         * indexed, limited query (conversations by owner, groups by member) and the two are merged here, so the
+         * response never holds more than the limit however many chats the user has.
+         */
+        public List<ChatListItemDTO> getChatList(String userId, Integer limit) {
+                return chatListTimer.record(() -> loadChatList(userId, limit));
+        }
+
+        private List<ChatListItemDTO> loadChatList(String userId, Integer limit) {
+                int size = limit == null ? maxConversations : Math.max(1, Math.min(limit, maxConversations));
+
+                List<ChatListItemDTO> items = new ArrayList<>(size * 2);
+                for (ConversationDTO conversation : loadRecentConversations(userId, size)) {
+                        ChatListItemDTO item = new ChatListItemDTO();
+                        item.setType(ChatListItemDTO.Type.DIRECT);
+                        item.setId(conversation.getUserId());
+                        item.setName(conversation.getFullName());
+                        item.setUsername(conversation.getUsername());
+                        item.setAvatar(conversation.getAvatar());
+                        item.setAvatarVariants(conversation.getAvatarVariants());
+                        item.setLastMessage(conversation.getLastMessage());
+                        item.setLastSenderId(conversation.getLastSenderId());
+                        item.setTimestamp(conversation.getTimestamp());
+                        item.setUnreadCount(conversation.getUnreadCount());
+                        items.add(item);
+                }
+                items.addAll(getRecentGroups(userId, size));
+
+                items.sort(Comparator.comparing(ChatListItemDTO::getTimestamp,
+                                Comparator.nullsLast(Comparator.reverseOrder())));
+                return items.size() > size ? new ArrayList<>(items.subList(0, size)) : items;
+        }
+
+        private List<ChatListItemDTO> getRecentGroups(String userId, int size) {
+                try {
+                        // Member count is computed server side so member lists never leave the database
+                        Aggregation aggregation = Aggregation.newAggregation(
+                                        Aggregation.match(Criteria.where("memberIds").is(userId)),
+                                        Aggregation.sort(Sort.Direction.DESC, "lastMessageTime"),
+                                        Aggregation.limit(size),
+                                        Aggregation.project("name", "avatar", "lastMessage", "lastSenderId",
+                                                        "lastMessageTime")
+                                                        .and(ArrayOperators.Size.lengthOfArray(
+                                                                        ConditionalOperators.ifNull("memberIds")
+                                                                                        .then(Collections.emptyList())))
+                                                        .as("memberCount"));
+
+                        List<ChatListItemDTO> groups = new ArrayList<>();
+                        for (Document row : mongoTemplate.aggregate(aggregation, ChatGroup.class, Document.class)) {
+                                ChatListItemDTO item = new ChatListItemDTO();
+                                item.setType(ChatListItemDTO.Type.GROUP);
+                                item.setId(String.valueOf(row.get("_id")));
+                                item.setName(row.getString("name"));
+                                item.setAvatar(row.getString("avatar"));
+                                item.setLastMessage(row.getString("lastMessage"));
+                                item.setLastSenderId(row.getString("lastSenderId"));
+                                Date time = row.getDate("lastMessageTime");
+                                item.setTimestamp(time != null
+                                                ? LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault())
+                                                : null);
+                                item.setMemberCount(row.getInteger("memberCount", 0));
+                                groups.add(item);
+                        }
+                        return groups;
+                } catch (Exception e) {
+                        log.error("Error fetching groups for user {}: {}", userId, e.getMessage(), e);
+                        return Collections.emptyList();
+                }
+        }
+
+        public List<ConversationDTO> toConversationDTOs(List<Conversation> conversations, Map<String, User> userMap) {
+                List<ConversationDTO> result = new ArrayList<>(conversations.size());
+                for (Conversation conversation : conversations) {
+                        String partnerId = conversation.getPartnerId();
+                        User partner = userMap.get(partnerId);
+
+                        ConversationDTO dto = new ConversationDTO();
+                        dto.setUserId(partnerId);
+                        dto.setUsername(partner != null ? partner.getUsername() : "Unknown");
+                        dto.setFullName(partner != null ? partner.getFullName() : "Unknown User");
+                        dto.setAvatar(partner != null ? partner.getAvatar() : null);
+                        dto.setAvatarVariants(partner != null ? partner.getAvatarVariants() : null);
+                        dto.setLastMessage(conversation.getLastMessage());
+                        dto.setLastSenderId(conversation.getLastSenderId());
+                        dto.setTimestamp(conversation.getLastMessageTime());
+                        dto.setUnreadCount(conversation.getUnreadCount());
+                        result.add(dto);
+                }
+                return result;
+        }
 }
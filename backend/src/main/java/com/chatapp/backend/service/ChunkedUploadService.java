@@ -0,0 +1,320 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.StoredFile;
+import com.chatapp.backend.dto.UploadSessionDTO;
+import com.chatapp.backend.exception.UploadTooLargeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads: a client opens a session, PUTs fixed-size chunks at their offsets in any order
+ * (and in parallel), asks which offsets are still missing after a dropped connection, and completes
+ * the session once every chunk is there. Chunks are written with positional channel writes straight
+ * into one preallocated temp file, so completing needs no copy. Sessions are held per node.
+ * Chunk writes share a session's lock; complete, abort and expiry take it exclusively, so a session
+ * is never closed under a write in progress.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.uploads.chunked.chunk-size:4194304}")
+    private int chunkSize;
+
+    @Value("${chat.uploads.chunked.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${chat.uploads.chunked.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${chat.uploads.chunked.max-sessions-per-user:10}")
+    private int maxSessionsPerUser;
+
+    @Value("${chat.uploads.chunked.session-ttl:1h}")
+    private Duration sessionTtl;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    // Open sessions per owner and in total, reserved before a session is created
+    private final Map<String, Integer> sessionsByOwner = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gaugeMapSize("chat.uploads.chunked.sessions", Collections.emptyList(), sessions);
+    }
+
+    public UploadSessionDTO open(String owner, String fileName, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Upload size must be positive");
+        }
+        if (size > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+        reserve(owner);
+        String uploadId = UUID.randomUUID().toString();
+        Path file = fileStorageService.tempFile(uploadId + ".part");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Sized up front so chunks can land anywhere; the file stays sparse until written
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        } catch (IOException ex) {
+            unreserve(owner);
+            deleteQuietly(file);
+            throw new RuntimeException("Could not start upload of " + fileName + ". Please try again!", ex);
+        }
+        UploadSession session = new UploadSession(uploadId, owner, fileName, size, file);
+        sessions.put(uploadId, session);
+        return toDTO(session);
+    }
+
+    public UploadSessionDTO status(String owner, String uploadId) {
+        return toDTO(session(owner, uploadId));
+    }
+
+    /**
+     * Writes one chunk. Offsets must be chunk-aligned and the body must be exactly the chunk's length
+     * (shorter only for the last chunk); re-sending a chunk simply overwrites it.
+     */
+    public UploadSessionDTO writeChunk(String owner, String uploadId, long offset, InputStream body) {
+        UploadSession session = session(owner, uploadId);
+        if (offset < 0 || offset >= session.size || offset % chunkSize != 0) {
+            throw new IllegalArgumentException("Offset " + offset + " is not a chunk boundary of this upload");
+        }
+        long expected = Math.min(chunkSize, session.size - offset);
+        int index = (int) (offset / chunkSize);
+
+        long written = 0;
+        Lock lock = session.lock.readLock();
+        lock.lock();
+        // A resend overwrites the chunk in place; until it is written in full the old bytes may be torn
+        session.markMissing(index);
+        try (ReadableByteChannel source = Channels.newChannel(body);
+                FileChannel target = FileChannel.open(session.openForWrite(), StandardOpenOption.WRITE)) {
+            long transferred;
+            // Positional transfers leave the channel position alone, so parallel chunks don't interfere
+            while (written < expected
+                    && (transferred = target.transferFrom(source, offset + written, expected - written)) > 0) {
+                written += transferred;
+            }
+            // Probe for excess bytes without letting them reach the neighbouring chunk
+            if (written == expected && source.read(ByteBuffer.allocate(1)) > 0) {
+                written++;
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk at " + offset + " must be " + expected + " bytes");
+            }
+            session.markReceived(index);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not write chunk at " + offset + ". Please retry it.", ex);
+        } finally {
+            lock.unlock();
+        }
+        meterRegistry.counter("chat.uploads.chunked.bytes").increment(written);
+        return toDTO(session);
+    }
+
+    public StoredFile complete(String owner, String uploadId) {
+        UploadSession session = session(owner, uploadId);
+        Lock lock = session.lock.writeLock();
+        lock.lock();
+        try {
+            if (session.closed) {
+                throw new NoSuchElementException("Upload " + uploadId + " is already completed");
+            }
+            if (!session.missingChunks(chunkCount(session)).isEmpty()) {
+                throw new IllegalStateException("Upload " + uploadId + " still has missing chunks");
+            }
+            close(session);
+        } finally {
+            lock.unlock();
+        }
+        meterRegistry.counter("chat.uploads.chunked.completed").increment();
+        return fileStorageService.storeAssembled(session.file, session.fileName);
+    }
+
+    public void abort(String owner, String uploadId) {
+        UploadSession session = session(owner, uploadId);
+        Lock lock = session.lock.writeLock();
+        lock.lock();
+        try {
+            if (!session.closed) {
+                close(session);
+                deleteQuietly(session.file);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.uploads.chunked.expiry-interval-ms:60000}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtl.toMillis();
+        int expired = 0;
+        for (UploadSession session : sessions.values()) {
+            // A session with a chunk being written is not idle; leave it for the next run
+            if (session.lastActivity >= cutoff || !session.lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                if (!session.closed && session.lastActivity < cutoff) {
+                    close(session);
+                    deleteQuietly(session.file);
+                    expired++;
+                }
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+        if (expired > 0) {
+            meterRegistry.counter("chat.uploads.chunked.expired").increment(expired);
+            log.info("Expired {} abandoned uploads", expired);
+        }
+    }
+
+    // Both caps are checked and taken in one step, so concurrent opens cannot overshoot them
+    private void reserve(String owner) {
+        if (openSessions.incrementAndGet() > maxSessions) {
+            openSessions.decrementAndGet();
+            throw new IllegalStateException("Too many uploads in progress, try again later");
+        }
+        try {
+            sessionsByOwner.compute(owner, (key, count) -> {
+                int open = count == null ? 0 : count;
+                if (open >= maxSessionsPerUser) {
+                    throw new IllegalStateException("You already have " + open + " uploads in progress");
+                }
+                return open + 1;
+            });
+        } catch (IllegalStateException e) {
+            openSessions.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void unreserve(String owner) {
+        sessionsByOwner.computeIfPresent(owner, (key, count) -> count > 1 ? count - 1 : null);
+        openSessions.decrementAndGet();
+    }
+
+    // Caller holds the session's write lock
+    private void close(UploadSession session) {
+        session.closed = true;
+        sessions.remove(session.id, session);
+        unreserve(session.owner);
+    }
+
+    private UploadSession session(String owner, String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        // Someone else's session is reported like a missing one
+        if (session == null || !session.owner.equals(owner)) {
+            throw new NoSuchElementException("Upload " + uploadId + " does not exist or has expired");
+        }
+        session.lastActivity = System.currentTimeMillis();
+        return session;
+    }
+
+    private int chunkCount(UploadSession session) {
+        return (int) ((session.size + chunkSize - 1) / chunkSize);
+    }
+
+    private UploadSessionDTO toDTO(UploadSession session) {
+        List<Long> missingOffsets = new ArrayList<>();
+        for (int index : session.missingChunks(chunkCount(session))) {
+            missingOffsets.add((long) index * chunkSize);
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(session.lastActivity).plus(sessionTtl), ZoneId.systemDefault());
+        return new UploadSessionDTO(session.id, session.fileName, session.size, chunkSize, missingOffsets, expiresAt);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class UploadSession {
+        private final String id;
+        private final String owner;
+        private final String fileName;
+        private final long size;
+        private final Path file;
+        private final BitSet received = new BitSet();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long lastActivity = System.currentTimeMillis();
+        // Set under the write lock once the session is completed, aborted or expired
+        private volatile boolean closed;
+
+        private UploadSession(String id, String owner, String fileName, long size, Path file) {
+            this.id = id;
+            this.owner = owner;
+            this.fileName = fileName;
+            this.size = size;
+            this.file = file;
+        }
+
+        // Caller holds the read lock, so the session cannot be closed while the chunk is written
+        private Path openForWrite() {
+            if (closed) {
+                throw new NoSuchElementException("Upload " + id + " does not exist or has expired");
+            }
+            return file;
+        }
+
+        private synchronized void markReceived(int index) {
+            received.set(index);
+        }
+
+        private synchronized void markMissing(int index) {
+            received.clear(index);
+        }
+
+        private synchronized List<Integer> missingChunks(int chunkCount) {
+            List<Integer> missing = new ArrayList<>();
+            for (int index = received.nextClearBit(0); index < chunkCount; index = received.nextClearBit(index + 1)) {
+                missing.add(index);
+            }
+            return missing;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Conversation;
+import com.chatapp.backend.repository.ConversationRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+@Service
+public class ConversationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    public List<Conversation> findRecent(String ownerId, int limit) {
+        return conversationRepository.findByOwnerIdOrderByLastMessageTimeDesc(ownerId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Records direct messages on both sides' conversations. Per conversation the batch becomes one upsert
+     * that creates it and adds the unread messages, and one preview update guarded on lastMessageId, so a
+     * retried or concurrently written older batch never replaces a newer preview.
+     */
+    public void recordMessages(Collection<ChatMessage> messages) {
+        Map<String, ChatMessage> latestById = new LinkedHashMap<>();
+        Map<String, Integer> unreadById = new HashMap<>();
+        Map<String, String[]> ownerAndPartnerById = new HashMap<>();
+        for (ChatMessage message : messages) {
+            if (message.getGroupId() != null || message.getSenderId() == null || message.getRecipientId() == null) {
+                continue;
+            }
+            for (boolean recipientSide : new boolean[] { false, true }) {
+                String ownerId = recipientSide ? message.getRecipientId() : message.getSenderId();
+                String partnerId = recipientSide ? message.getSenderId() : message.getRecipientId();
+                String id = Conversation.idFor(ownerId, partnerId);
+                ownerAndPartnerById.putIfAbsent(id, new String[] { ownerId, partnerId });
+                latestById.merge(id, message, (a, b) -> a.getId().compareTo(b.getId()) >= 0 ? a : b);
+                if (recipientSide) {
+                    unreadById.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+        if (latestById.isEmpty()) {
+            return;
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Conversation.class);
+        latestById.forEach((id, latest) -> {
+            String[] ownerAndPartner = ownerAndPartnerById.get(id);
+            Update create = new Update()
+                    .setOnInsert("ownerId", ownerAndPartner[0])
+                    .setOnInsert("partnerId", ownerAndPartner[1]);
+            int unread = unreadById.getOrDefault(id, 0);
+            if (unread > 0) {
+                create.inc("unreadCount", unread);
+            }
+            ops.upsert(byOwnerAndPartner(ownerAndPartner[0], ownerAndPartner[1]), create);
+            // Ids are ObjectId hex strings, which order the same way as text
+            ops.updateOne(new Query(Criteria.where("_id").is(id).and("lastMessageId").not().gte(latest.getId())),
+                    lastMessageUpdate(latest));
+        });
+        ops.execute();
+    }
+
+    public void markRead(String ownerId, String partnerId) {
+        mongoTemplate.updateFirst(byOwnerAndPartner(ownerId, partnerId), new Update().set("unreadCount", 0),
+                Conversation.class);
+    }
+
+    /**
+     * Clears the unread count of each conversation (owner -> partner) whose last message is at or before
+     * the given message id. Ids are ObjectId hex strings, which order the same way as text.
+     */
+    public void markReadUpTo(Map<String, String> readUpToByConversationId) {
+        if (readUpToByConversationId.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class);
+        readUpToByConversationId.forEach((conversationId, messageId) -> ops.updateOne(
+                new Query(new Criteria().andOperator(
+                        Criteria.where("_id").is(conversationId),
+                        Criteria.where("lastMessageId").lte(messageId))),
+                new Update().set("unreadCount", 0)));
+        ops.execute();
+    }
+
+    public void remove(String ownerId, String partnerId) {
+        conversationRepository.deleteById(Conversation.idFor(ownerId, partnerId));
+    }
+
+    // One-time migration: derive the read model from existing messages when the collection is still empty
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (mongoTemplate.estimatedCount(Conversation.class) > 0) {
+                return;
+            }
+
+            // Latest message per directed (sender, recipient) pair, computed server side
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(new Criteria().andOperator(
+                            new Criteria().orOperator(
+                                    Criteria.where("groupId").exists(false),
+                                    Criteria.where("groupId").is(null)),
+                            Criteria.where("senderId").ne(null),
+                            Criteria.where("recipientId").ne(null))),
+                    Aggregation.sort(Sort.Direction.DESC, "timestamp"),
+                    Aggregation.group("senderId", "recipientId")
+                            .first("_id").as("lastMessageId")
+                            .first("content").as("lastMessage")
+                            .first("timestamp").as("lastMessageTime"))
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+            // Fold both directions into the latest message per unordered pair
+            Map<String, Conversation> latestByPair = new HashMap<>();
+            for (Document row : mongoTemplate.aggregate(aggregation, "messages", Document.class)) {
+                Document pair = row.get("_id", Document.class);
+                Conversation candidate = new Conversation();
+                candidate.setLastSenderId(pair.getString("senderId"));
+                candidate.setPartnerId(pair.getString("recipientId"));
+                candidate.setLastMessageId(String.valueOf(row.get("lastMessageId")));
+                candidate.setLastMessage(row.getString("lastMessage"));
+                Date time = row.getDate("lastMessageTime");
+                candidate.setLastMessageTime(
+                        time != null ? LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault()) : null);
+
+                String key = ChatMessage.directConversationId(candidate.getLastSenderId(), candidate.getPartnerId());
+                latestByPair.merge(key, candidate, (a, b) -> isAfter(b, a) ? b : a);
+            }
+            if (latestByPair.isEmpty()) {
+                return;
+            }
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class);
+            for (Conversation latest : latestByPair.values()) {
+                String sender = latest.getLastSenderId();
+                String recipient = latest.getPartnerId();
+                ops.insert(copyFor(latest, sender, recipient));
+                if (!sender.equals(recipient)) {
+                    ops.insert(copyFor(latest, recipient, sender));
+                }
+            }
+            ops.execute();
+            log.info("Backfilled conversations for {} chat pairs", latestByPair.size());
+        } catch (Exception e) {
+            log.error("Conversation backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Query byOwnerAndPartner(String ownerId, String partnerId) {
+        return new Query(Criteria.where("_id").is(Conversation.idFor(ownerId, partnerId)));
+    }
+
+    private Update lastMessageUpdate(ChatMessage message) {
+        return new Update()
+                .set("lastMessageId", message.getId())
+                .set("lastMessage", message.getContent())
+                .set("lastSenderId", message.getSenderId())
+                .set("lastMessageTime", message.getTimestamp());
+    }
+
+    private boolean isAfter(Conversation a, Conversation b) {
+        if (a.getLastMessageTime() == null) {
+            return false;
+        }
+        return b.getLastMessageTime() == null || a.getLastMessageTime().isAfter(b.getLastMessageTime());
+    }
+
+    private Conversation copyFor(Conversation latest, String ownerId, String partnerId) {
+        Conversation conversation = new Conversation();
+        conversation.setId(Conversation.idFor(ownerId, partnerId));
+        conversation.setOwnerId(ownerId);
+        conversation.setPartnerId(partnerId);
+        conversation.setLastMessageId(latest.getLastMessageId());
+        conversation.setLastMessage(latest.getLastMessage());
+        conversation.setLastSenderId(latest.getLastSenderId());
+        conversation.setLastMessageTime(latest.getLastMessageTime());
+        return conversation;
+    }
+}
@@ -0,0 +1,161 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.SyncPageDTO;
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Delivery;
+import com.chatapp.backend.model.DeliverySequence;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Per-user delivery log. Every stored message gets an entry with a per-user increasing sequence
+ * number for each participant (including the sender, for their other devices). A reconnecting
+ * client asks for everything after the last sequence it saw and gets only the missed messages, across
+ * all conversations, in one indexed range read.
+ */
+@Service
+public class DeliveryLogService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private GroupMembershipCache groupMembershipCache;
+
+    @Autowired
+    private TombstoneService tombstoneService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.sync.default-page-size:200}")
+    private int defaultPageSize;
+
+    @Value("${chat.sync.max-page-size:500}")
+    private int maxPageSize;
+
+    // How long a hole in the sequence is treated as a batch still being written rather than a lost one
+    @Value("${chat.sync.gap-grace:10s}")
+    private Duration gapGrace;
+
+    /**
+     * Appends a persisted batch to the logs of everyone involved. Sequence numbers are reserved with one
+     * findAndModify per user per batch, however many of the batch's messages that user gets.
+     */
+    public void record(Collection<ChatMessage> messages) {
+        Map<String, List<String>> messageIdsByUser = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            for (String userId : participants(message)) {
+                messageIdsByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(message.getId());
+            }
+        }
+        if (messageIdsByUser.isEmpty()) {
+            return;
+        }
+
+        Date now = new Date();
+        List<Delivery> deliveries = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : messageIdsByUser.entrySet()) {
+            List<String> messageIds = entry.getValue();
+            long last = reserve(entry.getKey(), messageIds.size());
+            long seq = last - messageIds.size();
+            for (String messageId : messageIds) {
+                deliveries.add(new Delivery(null, entry.getKey(), ++seq, messageId, now));
+            }
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class);
+        ops.insert(deliveries);
+        ops.execute();
+        meterRegistry.counter("chat.sync.deliveries").increment(deliveries.size());
+    }
+
+    // The position a client should start from when it has nothing yet
+    public long currentSeq(String userId) {
+        DeliverySequence sequence = mongoTemplate.findById(userId, DeliverySequence.class);
+        return sequence != null ? sequence.getSeq() : 0;
+    }
+
+    public SyncPageDTO sync(String userId, long since, Integer limit) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        Query query = new Query(Criteria.where("userId").is(userId).and("seq").gt(since))
+                .with(Sort.by(Sort.Direction.ASC, "seq"))
+                .limit(size + 1);
+        query.fields().include("seq").include("messageId").include("createdAt");
+        List<Delivery> deliveries = mongoTemplate.find(query, Delivery.class);
+
+        boolean hasMore = deliveries.size() > size;
+        if (hasMore) {
+            deliveries = deliveries.subList(0, size);
+        }
+
+        // Sequence numbers are reserved before their batch is inserted, and batches from different writers
+        // can commit out of order. Stop before a recent hole so the client does not move past entries that
+        // are about to appear; a hole older than the grace period belongs to a batch that was never written.
+        long expected = since + 1;
+        long graceStart = System.currentTimeMillis() - gapGrace.toMillis();
+        for (int i = 0; i < deliveries.size(); i++) {
+            Delivery delivery = deliveries.get(i);
+            if (delivery.getSeq() != expected && (delivery.getCreatedAt() == null
+                    || delivery.getCreatedAt().getTime() > graceStart)) {
+                deliveries = deliveries.subList(0, i);
+                hasMore = false;
+                meterRegistry.counter("chat.sync.gaps").increment();
+                break;
+            }
+            expected = delivery.getSeq() + 1;
+        }
+        if (deliveries.isEmpty()) {
+            return new SyncPageDTO(Collections.emptyList(), since, false);
+        }
+
+        List<String> messageIds = deliveries.stream().map(Delivery::getMessageId).toList();
+        Map<String, ChatMessage> byId = new HashMap<>();
+        for (ChatMessage message : mongoTemplate.find(new Query(Criteria.where("_id").in(messageIds)), ChatMessage.class)) {
+            byId.put(message.getId(), message);
+        }
+        // Deleted messages simply drop out; the sequence still advances past them
+        List<ChatMessage> result = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            ChatMessage message = byId.get(messageId);
+            if (message != null && !tombstoneService.isHidden(message)) {
+                result.add(message);
+            }
+        }
+        meterRegistry.counter("chat.sync.requests").increment();
+        return new SyncPageDTO(result, deliveries.get(deliveries.size() - 1).getSeq(), hasMore);
+    }
+
+    private long reserve(String userId, int count) {
+        DeliverySequence sequence = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(userId)),
+                new Update().inc("seq", count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                DeliverySequence.class);
+        return sequence.getSeq();
+    }
+
+    private Collection<String> participants(ChatMessage message) {
+        Set<String> userIds = new LinkedHashSet<>();
+        if (message.getGroupId() != null) {
+            userIds.addAll(Arrays.asList(groupMembershipCache.getMembers(message.getGroupId())));
+        } else if (message.getRecipientId() != null) {
+            userIds.add(message.getRecipientId());
+        }
+        if (message.getSenderId() != null) {
+            userIds.add(message.getSenderId());
+        }
+        return userIds;
+    }
+}
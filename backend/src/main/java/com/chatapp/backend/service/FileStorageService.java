@@ -1,34 +1,110 @@
 package com.chatapp.backend.service;
 
+import com.chatapp.backend.dto.StoredFile;
+import com.chatapp.backend.exception.UploadTooLargeException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 @Service
 public class FileStorageService {
 
+    public static final String CONTENT_ADDRESSED_DIR = "cas";
+
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    private static final int PATH_LOCK_STRIPES = 64;
+
     private final Path fileStorageLocation;
 
+    // Sibling of the upload directory: same file system for atomic moves, but never served
+    private final Path tempLocation;
+
+    // "content-addressed" (hash-named, deduplicated) or "uuid" (one file per upload)
+    @Value("${chat.uploads.storage-mode:content-addressed}")
+    private String storageMode;
+
+    // Serializes "is this content already stored" checks against the orphan sweep deleting it
+    private final Object[] pathLocks = new Object[PATH_LOCK_STRIPES];
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Published, under the path lock, whenever content-addressed content is stored or handed out again.
+     * Listeners run synchronously, before the caller learns the file name.
+     */
+    public record ContentStoredEvent(String fileName) {
+    }
+
     public FileStorageService() {
+        for (int i = 0; i < pathLocks.length; i++) {
+            pathLocks[i] = new Object();
+        }
+
         this.fileStorageLocation = Paths.get("uploads").toAbsolutePath().normalize();
+        this.tempLocation = this.fileStorageLocation.resolveSibling("uploads-tmp");
 
         try {
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
         }
     }
 
     public String storeFile(MultipartFile file) {
+        long start = System.nanoTime();
+        try {
+            String fileName = storeMultipart(file);
+            recordStored("multipart", start, file.getSize());
+            return fileName;
+        } catch (RuntimeException ex) {
+            meterRegistry.counter("chat.uploads.failed", "source", "multipart").increment();
+            throw ex;
+        }
+    }
+
+    private String storeMultipart(MultipartFile file) {
+        if (isContentAddressed()) {
+            try {
+                return writeStream(file.getInputStream(), file.getOriginalFilename(), Long.MAX_VALUE).getFileName();
+            } catch (IOException ex) {
+                throw new RuntimeException("Could not store file " + file.getOriginalFilename() + ". Please try again!", ex);
+            }
+        }
+
         // Normalize file name
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
         String fileExtension = "";
@@ -56,6 +132,182 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Streams a raw request body to disk. The SHA-256 is computed while the bytes pass through, and the
+     * copy stops as soon as more than {@code maxBytes} have arrived. In content-addressed mode the body
+     * lands in a temp file first and is then moved to its hash path, or dropped if that content is
+     * already stored.
+     */
+    public StoredFile storeStream(InputStream in, String originalFileName, long maxBytes) {
+        long start = System.nanoTime();
+        try {
+            StoredFile stored = writeStream(in, originalFileName, maxBytes);
+            recordStored("stream", start, stored.getSize());
+            return stored;
+        } catch (RuntimeException ex) {
+            meterRegistry.counter("chat.uploads.failed", "source", "stream").increment();
+            throw ex;
+        }
+    }
+
+    private StoredFile writeStream(InputStream in, String originalFileName, long maxBytes) {
+        String extension = extensionOf(originalFileName);
+        String fileName = UUID.randomUUID().toString() + extension;
+        Path targetLocation = isContentAddressed() ? this.tempLocation.resolve(fileName)
+                : this.fileStorageLocation.resolve(fileName);
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(in, digest));
+                FileChannel target = FileChannel.open(targetLocation, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+            long transferred;
+            // Asking for one byte past the limit is enough to detect an oversized body
+            while ((transferred = target.transferFrom(source, size,
+                    Math.min(TRANSFER_CHUNK_SIZE, maxBytes - size) + 1)) > 0) {
+                size += transferred;
+                if (size > maxBytes) {
+                    throw new UploadTooLargeException(maxBytes);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            deleteQuietly(targetLocation);
+            if (ex instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Could not store file " + fileName + ". Please try again!", ex);
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (!isContentAddressed()) {
+            return new StoredFile(fileName, size, sha256);
+        }
+        return new StoredFile(promote(targetLocation, sha256, extension), size, sha256);
+    }
+
+    /**
+     * Looks up already stored content by hash, so a client can skip uploading bytes the server has.
+     */
+    public Optional<StoredFile> findContentAddressed(String sha256, String originalFileName) {
+        if (!isContentAddressed() || !sha256.matches("[0-9a-f]{64}")) {
+            return Optional.empty();
+        }
+        String fileName = contentAddressedName(sha256, extensionOf(originalFileName));
+        Path path = this.fileStorageLocation.resolve(fileName);
+        synchronized (lockFor(fileName)) {
+            try {
+                if (!Files.exists(path)) {
+                    return Optional.empty();
+                }
+                eventPublisher.publishEvent(new ContentStoredEvent(fileName));
+                return Optional.of(new StoredFile(fileName, Files.size(path), sha256));
+            } catch (IOException ex) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Moves a fully assembled temp file (see {@link #tempFile(String)}) into the store under the same
+     * naming rules as {@link #storeStream}.
+     */
+    public StoredFile storeAssembled(Path assembled, String originalFileName) {
+        String extension = extensionOf(originalFileName);
+        try {
+            long size = Files.size(assembled);
+            String sha256 = hash(assembled);
+            if (isContentAddressed()) {
+                return new StoredFile(promote(assembled, sha256, extension), size, sha256);
+            }
+            String fileName = UUID.randomUUID().toString() + extension;
+            Files.move(assembled, this.fileStorageLocation.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+            return new StoredFile(fileName, size, sha256);
+        } catch (IOException ex) {
+            deleteQuietly(assembled);
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        }
+    }
+
+    // Duration and size of each stored upload by source: multipart, stream (raw body)
+    private void recordStored(String source, long startNanos, long bytes) {
+        meterRegistry.timer("chat.uploads.store", "source", source)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("chat.uploads.bytes").baseUnit("bytes").tag("source", source)
+                .register(meterRegistry).record(bytes);
+    }
+
+    public Path tempFile(String name) {
+        Path path = this.tempLocation.resolve(name).normalize();
+        if (!path.startsWith(this.tempLocation)) {
+            throw new RuntimeException("Sorry! Filename contains invalid path sequence " + name);
+        }
+        return path;
+    }
+
+    public void delete(String fileName) {
+        deleteQuietly(resolve(fileName));
+    }
+
+    /**
+     * Deletes a content-addressed file if {@code unreferenced} still holds once no upload of the same
+     * content can be between its existence check and its {@link ContentStoredEvent}.
+     */
+    public boolean deleteIf(String fileName, BooleanSupplier unreferenced) {
+        synchronized (lockFor(fileName)) {
+            if (!unreferenced.getAsBoolean()) {
+                return false;
+            }
+            deleteQuietly(resolve(fileName));
+            return true;
+        }
+    }
+
+    public Path resolve(String fileName) {
+        Path path = this.fileStorageLocation.resolve(fileName).normalize();
+        if (!path.startsWith(this.fileStorageLocation)) {
+            throw new RuntimeException("Sorry! Filename contains invalid path sequence " + fileName);
+        }
+        return path;
+    }
+
+    public boolean isContentAddressed() {
+        return "content-addressed".equals(storageMode);
+    }
+
+    private String promote(Path tempFile, String sha256, String extension) {
+        String fileName = contentAddressedName(sha256, extension);
+        Path targetLocation = this.fileStorageLocation.resolve(fileName);
+        synchronized (lockFor(fileName)) {
+            // Claim the content before checking for it, so the sweep cannot delete what we are about to reuse
+            eventPublisher.publishEvent(new ContentStoredEvent(fileName));
+            try {
+                if (Files.exists(targetLocation)) {
+                    deleteQuietly(tempFile);
+                    return fileName;
+                }
+                Files.createDirectories(targetLocation.getParent());
+                Files.move(tempFile, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException ex) {
+                // Another upload of the same content won the race; identical bytes, keep theirs
+                deleteQuietly(tempFile);
+            } catch (IOException ex) {
+                deleteQuietly(tempFile);
+                throw new RuntimeException("Could not store file " + fileName + ". Please try again!", ex);
+            }
+        }
+        return fileName;
+    }
+
+    private Object lockFor(String fileName) {
+        return pathLocks[Math.floorMod(fileName.hashCode(), pathLocks.length)];
+    }
+
+    // cas/ab/cd/abcd...ef.jpg: two levels of sharding keep directory sizes small
+    private String contentAddressedName(String sha256, String extension) {
+        return CONTENT_ADDRESSED_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/"
+                + sha256 + extension;
+    }
+
     public Resource loadFileAsResource(String fileName) {
         try {
             Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
@@ -69,4 +321,42 @@ public class FileStorageService {
             throw new RuntimeException("File not found " + fileName, ex);
         }
     }
+
+    private String extensionOf(String originalFileName) {
+        if (originalFileName == null) {
+            return "";
+        }
+        String extension = StringUtils.getFilenameExtension(StringUtils.cleanPath(originalFileName));
+        // Only keep plain extensions; anything else would end up in the stored file name
+        return extension != null && extension.matches("[A-Za-z0-9]{1,10}") ? "." + extension : "";
+    }
+
+    private String hash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) TRANSFER_CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // A leftover partial file only costs disk space
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatGroup;
+import com.chatapp.backend.model.ChatMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the lastMessage preview of each group current. Persisted group messages only replace the pending
+ * latest message of their group in memory; the flush writes one conditional update per active group, so a
+ * busy group costs at most one write per flush interval however many messages it receives.
+ */
+@Service
+public class GroupActivityService {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupActivityService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ChatMessage> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gaugeMapSize("chat.groups.activity.pending", Collections.emptyList(), pending);
+    }
+
+    public void recordMessages(Collection<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message.getGroupId() != null && message.getId() != null) {
+                pending.merge(message.getGroupId(), message, GroupActivityService::newer);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.groups.activity.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, ChatMessage> batch = new HashMap<>();
+        for (String groupId : new ArrayList<>(pending.keySet())) {
+            ChatMessage latest = pending.remove(groupId);
+            if (latest != null) {
+                batch.put(groupId, latest);
+            }
+        }
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatGroup.class);
+            batch.forEach((groupId, latest) -> ops.updateOne(
+                    newerThanPreview(groupId, latest.getId()),
+                    lastMessageUpdate(latest.getId(), latest.getContent(), latest.getSenderId(),
+                            latest.getTimestamp())));
+            ops.execute();
+        } catch (Exception e) {
+            // Put them back; anything newer that arrived meanwhile wins
+            batch.forEach((groupId, latest) -> pending.merge(groupId, latest, GroupActivityService::newer));
+            log.error("Could not update the last message of {} groups: {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+        meterRegistry.counter("chat.groups.activity.updates").increment(batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // One-time migration: groups created before the preview was maintained get it from their messages
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            // lastMessageTime used to be a free-form string set by clients
+            mongoTemplate.updateMulti(new Query(Criteria.where("lastMessageTime").type(2)),
+                    new Update().unset("lastMessageTime").unset("lastMessage"), ChatGroup.class);
+
+            Query missing = new Query(Criteria.where("lastMessageId").exists(false));
+            missing.fields().include("_id");
+            List<String> groupIds = mongoTemplate.find(missing, ChatGroup.class).stream()
+                    .map(ChatGroup::getId)
+                    .toList();
+            if (groupIds.isEmpty()) {
+                return;
+            }
+
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("groupId").in(groupIds)),
+                    Aggregation.sort(Sort.Direction.DESC, "timestamp"),
+                    Aggregation.group("groupId")
+                            .first("_id").as("lastMessageId")
+                            .first("content").as("lastMessage")
+                            .first("senderId").as("lastSenderId")
+                            .first("timestamp").as("lastMessageTime"))
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatGroup.class);
+            int count = 0;
+            for (Document row : mongoTemplate.aggregate(aggregation, "messages", Document.class)) {
+                String messageId = String.valueOf(row.get("lastMessageId"));
+                Date time = row.getDate("lastMessageTime");
+                ops.updateOne(newerThanPreview(row.getString("_id"), messageId),
+                        lastMessageUpdate(messageId, row.getString("lastMessage"), row.getString("lastSenderId"),
+                                time != null ? LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault()) : null));
+                count++;
+            }
+            if (count > 0) {
+                ops.execute();
+                log.info("Backfilled the last message of {} groups", count);
+            }
+        } catch (Exception e) {
+            log.error("Group last message backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Ids are ObjectId hex strings, so a late or retried flush never replaces a newer preview
+    private Query newerThanPreview(String groupId, String messageId) {
+        return new Query(Criteria.where("_id").is(groupId).and("lastMessageId").not().gte(messageId));
+    }
+
+    private Update lastMessageUpdate(String messageId, String content, String senderId, LocalDateTime timestamp) {
+        return new Update()
+                .set("lastMessageId", messageId)
+                .set("lastMessage", content)
+                .set("lastSenderId", senderId)
+                .set("lastMessageTime", timestamp);
+    }
+
+    private static ChatMessage newer(ChatMessage a, ChatMessage b) {
+        return a.getId().compareTo(b.getId()) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,74 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatGroup;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Size-bounded cache of group member ids used for message fan-out. Anything that changes a group's
+ * membership must call {@link #invalidate(String)}.
+ */
+@Service
+public class GroupMembershipCache {
+
+    private static final String[] NO_MEMBERS = new String[0];
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.groups.membership-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${chat.groups.membership-cache.expire-after-access:30m}")
+    private Duration expireAfterAccess;
+
+    private Cache<String, String[]> members;
+
+    @PostConstruct
+    public void init() {
+        members = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, members, "groupMembers");
+    }
+
+    public String[] getMembers(String groupId) {
+        String[] cached = members.get(groupId, this::loadMembers);
+        return cached != null ? cached : NO_MEMBERS;
+    }
+
+    public void invalidate(String groupId) {
+        members.invalidate(groupId);
+    }
+
+    // Loads only the memberIds field instead of the whole group document. Unknown groups yield null,
+    // which Caffeine does not cache: arbitrary ids must not fill the cache or outlive a group's creation
+    private String[] loadMembers(String groupId) {
+        Query query = new Query(Criteria.where("_id").is(groupId));
+        query.fields().include("memberIds");
+        ChatGroup group = mongoTemplate.findOne(query, ChatGroup.class);
+        if (group == null) {
+            return null;
+        }
+        if (group.getMemberIds() == null) {
+            return NO_MEMBERS;
+        }
+        return group.getMemberIds().toArray(NO_MEMBERS);
+    }
+}
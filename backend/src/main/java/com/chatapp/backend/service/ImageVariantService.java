@@ -0,0 +1,251 @@
+package com.chatapp.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates downscaled JPEG variants of uploaded images on a small worker pool. Variant names are
+ * derived from the original ("photo.png" -> "photo_thumb.jpg"), so their URLs are known as soon as
+ * the upload is stored and can be put on messages and users before the files exist. A variant that
+ * does not exist (not generated yet, job dropped, or image over the pixel limit) is answered by
+ * {@code AttachmentController} with a redirect to the original.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // Variant name -> longest edge in pixels, smallest first
+    public static final Map<String, Integer> VARIANTS = Map.of("thumb", 160, "small", 480, "medium", 1080);
+    private static final String[] VARIANT_ORDER = { "thumb", "small", "medium" };
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.images.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${chat.images.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${chat.images.max-pixels:50000000}")
+    private long maxPixels;
+
+    @Value("${chat.images.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    private ThreadPoolExecutor workers;
+    private Timer generateTimer;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        generateTimer = meterRegistry.timer("chat.images.variants.generate");
+        dropped = meterRegistry.counter("chat.images.variants.dropped");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                // A full queue drops the job; clients fall back to the original
+                (runnable, executor) -> dropped.increment());
+        meterRegistry.gaugeCollectionSize("chat.images.variants.queue", Collections.emptyList(),
+                workers.getQueue());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public static boolean isImage(String fileName) {
+        String extension = extensionOf(fileName);
+        return extension != null && ImageIO.getImageReadersBySuffix(extension).hasNext();
+    }
+
+    /**
+     * Variant URLs of an uploaded image URL, or an empty map if it is not an image upload.
+     */
+    public static Map<String, String> variantUrls(String url) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        if (url == null || !url.contains("/uploads/") || !isImage(url)) {
+            return urls;
+        }
+        for (String variant : VARIANT_ORDER) {
+            urls.put(variant, variantName(url, variant));
+        }
+        return urls;
+    }
+
+    public void generateAsync(String fileName) {
+        if (isImage(fileName)) {
+            workers.execute(() -> generate(fileName));
+        }
+    }
+
+    public void deleteVariants(String fileName) {
+        for (String variant : VARIANT_ORDER) {
+            fileStorageService.delete(variantName(fileName, variant));
+        }
+    }
+
+    private void generate(String fileName) {
+        Path original = fileStorageService.resolve(fileName);
+        // Content-addressed originals are shared, so their variants may already exist
+        if (VARIANTS.keySet().stream().allMatch(v -> Files.exists(fileStorageService.resolve(variantName(fileName, v))))) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            BufferedImage source = read(original, VARIANTS.get("medium"));
+            if (source == null) {
+                return;
+            }
+            // Each step starts from the previous, larger variant, which is cheaper and looks better
+            BufferedImage current = source;
+            for (int i = VARIANT_ORDER.length - 1; i >= 0; i--) {
+                current = downscale(current, VARIANTS.get(VARIANT_ORDER[i]));
+                writeJpeg(current, fileStorageService.resolve(variantName(fileName, VARIANT_ORDER[i])));
+            }
+        } catch (Exception e) {
+            log.warn("Could not create variants of {}: {}", fileName, e.getMessage());
+        } finally {
+            generateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Decodes with source subsampling so a large photo is never fully expanded in memory
+    private BufferedImage read(Path path, int largestEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Skipping variants of {}: {}x{} exceeds the pixel limit", path.getFileName(), width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (largestEdge * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage downscale(BufferedImage image, int largestEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) largestEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        // Halve repeatedly, then finish with one bilinear pass
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight
+                || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    // Always renders onto an opaque RGB canvas; JPEG has no alpha channel
+    private BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Written to a unique temp file and moved, so a half-written variant is never served and two jobs for
+    // the same content-addressed original never write into each other's file
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String variantName(String fileName, String variant) {
+        int dot = fileName.lastIndexOf('.');
+        return fileName.substring(0, dot) + "_" + variant + ".jpg";
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        int slash = fileName.lastIndexOf('/');
+        return dot > slash ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : null;
+    }
+}
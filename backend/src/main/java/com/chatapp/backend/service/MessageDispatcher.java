@@ -0,0 +1,58 @@
+package com.chatapp.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Fans a payload out to user destinations with a single JSON serialization. The resulting message is
+ * shared by all recipients; only the destination header differs per send.
+ */
+@Service
+public class MessageDispatcher {
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void sendToUser(String userId, String destination, Object payload) {
+        messagingTemplate.send(userDestination(userId, destination), serialize(payload));
+    }
+
+    // Sends to every user except excludedUserId (typically the sender); returns the number of recipients
+    public int sendToUsers(String[] userIds, String excludedUserId, String destination, Object payload) {
+        Message<byte[]> message = serialize(payload);
+        int sent = 0;
+        for (String userId : userIds) {
+            if (!userId.equals(excludedUserId)) {
+                messagingTemplate.send(userDestination(userId, destination), message);
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    public Message<byte[]> serialize(Object payload) {
+        try {
+            return MessageBuilder.withPayload(objectMapper.writeValueAsBytes(payload))
+                    .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Could not serialize " + payload.getClass().getSimpleName(), e);
+        }
+    }
+
+    private String userDestination(String userId, String destination) {
+        // Same encoding as SimpMessagingTemplate.convertAndSendToUser
+        return messagingTemplate.getUserDestinationPrefix() + userId.replace("/", "%2F") + destination;
+    }
+}
@@ -0,0 +1,289 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind persistence for chat messages. Messages are delivered before they are stored; a single
+ * writer thread drains the bounded queue and inserts whatever has accumulated as one unordered bulk
+ * write. Senders receive an ack on /user/queue/acks once their messages are durable.
+ */
+@Service
+public class MessagePersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePersistenceService.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private GroupActivityService groupActivityService;
+
+    @Autowired
+    private AttachmentRefService attachmentRefService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private DeliveryLogService deliveryLogService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.persistence.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.persistence.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    @Value("${chat.persistence.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    @Value("${chat.persistence.max-attempts:3}")
+    private int maxAttempts;
+
+    private BlockingQueue<ChatMessage> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    // Accepted messages not yet through persist(), mapped to whether a delete arrived in the meantime
+    private final Map<String, Boolean> unsettled = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+    private Timer persistLatency;
+    private DistributionSummary batchSizes;
+    private Counter persisted;
+    private Counter failed;
+    private Counter writeThrough;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        meterRegistry.gauge("chat.persistence.queue.depth", queue, BlockingQueue::size);
+        flushTimer = Timer.builder("chat.persistence.flush").register(meterRegistry);
+        persistLatency = Timer.builder("chat.persistence.latency")
+                .description("Time from accepting a message to it being stored")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("chat.persistence.batch.size").register(meterRegistry);
+        persisted = Counter.builder("chat.persistence.messages").tag("result", "persisted").register(meterRegistry);
+        failed = Counter.builder("chat.persistence.messages").tag("result", "failed").register(meterRegistry);
+        writeThrough = Counter.builder("chat.persistence.write.through").register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::drainLoop, "message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Let the writer drain what is left before the Mongo client goes away
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            log.warn("Shutting down with {} unpersisted messages", queue.size());
+        }
+    }
+
+    public void enqueue(ChatMessage message) {
+        unsettled.put(message.getId(), Boolean.FALSE);
+        try {
+            if (queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queue is saturated: write through on the caller thread so inbound traffic slows to the store's pace
+        writeThrough.increment();
+        persist(List.of(message));
+    }
+
+    /**
+     * Hands the delete of a message that is still on its way to the store over to the writer, which
+     * removes it (and releases its attachment) right after storing it. Returns false once the message
+     * is settled, in which case the caller deletes the stored copy itself.
+     */
+    public boolean deleteWhenPersisted(String messageId) {
+        return unsettled.computeIfPresent(messageId, (id, deleteRequested) -> Boolean.TRUE) != null;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Message writer failed: {}", e.getMessage(), e);
+                batch.forEach(message -> unsettled.remove(message.getId()));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<ChatMessage> batch) {
+        long start = System.nanoTime();
+        // Receipts can overtake a message that is still queued here
+        batch.forEach(message -> message.setStatus(receiptService.statusFor(message)));
+        boolean stored = insertWithRetry(batch);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        if (stored) {
+            persisted.increment(batch.size());
+            recordLatency(batch);
+            try {
+                conversationService.recordMessages(batch);
+            } catch (Exception e) {
+                log.error("Could not update conversations for {} messages: {}", batch.size(), e.getMessage(), e);
+            }
+            try {
+                groupActivityService.recordMessages(batch);
+            } catch (Exception e) {
+                log.error("Could not update group activity for {} messages: {}", batch.size(), e.getMessage(), e);
+            }
+            try {
+                deliveryLogService.record(batch);
+            } catch (Exception e) {
+                log.error("Could not append {} messages to delivery logs: {}", batch.size(), e.getMessage(), e);
+            }
+            try {
+                attachmentRefService.retainMessages(batch);
+            } catch (Exception e) {
+                log.error("Could not retain attachments for {} messages: {}", batch.size(), e.getMessage(), e);
+            }
+        } else {
+            failed.increment(batch.size());
+        }
+        settle(batch, stored);
+        acknowledge(batch, stored ? "PERSISTED" : "FAILED");
+    }
+
+    // A delete that raced the write is applied now that the message and its attachment ref exist
+    private void settle(List<ChatMessage> batch, boolean stored) {
+        List<ChatMessage> deleted = batch.stream()
+                .filter(message -> Boolean.TRUE.equals(unsettled.remove(message.getId())))
+                .toList();
+        if (!stored || deleted.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id")
+                    .in(deleted.stream().map(ChatMessage::getId).toList())), ChatMessage.class);
+            attachmentRefService.releaseAll(deleted.stream()
+                    .map(ChatMessage::getAttachmentUrl)
+                    .filter(Objects::nonNull)
+                    .toList());
+        } catch (Exception e) {
+            log.error("Could not apply {} deletes to just stored messages: {}", deleted.size(), e.getMessage(), e);
+        }
+    }
+
+    private void recordLatency(List<ChatMessage> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ChatMessage message : batch) {
+            if (message.getTimestamp() != null) {
+                persistLatency.record(Duration.between(message.getTimestamp(), now));
+            }
+        }
+    }
+
+    private boolean insertWithRetry(List<ChatMessage> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+                ops.insert(batch);
+                ops.execute();
+                return true;
+            } catch (BulkOperationException e) {
+                // Ids are assigned up front, so duplicates only mean an earlier attempt already stored them
+                if (e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                    return true;
+                }
+                if (!backOff(attempt, e)) {
+                    return false;
+                }
+            } catch (Exception e) {
+                if (!backOff(attempt, e)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private boolean backOff(int attempt, Exception e) {
+        if (attempt >= maxAttempts) {
+            log.error("Giving up persisting messages after {} attempts: {}", attempt, e.getMessage(), e);
+            return false;
+        }
+        log.warn("Persisting messages failed (attempt {}), retrying: {}", attempt, e.getMessage());
+        try {
+            Thread.sleep(100L * attempt);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void acknowledge(List<ChatMessage> batch, String status) {
+        Map<String, List<String>> idsBySender = batch.stream()
+                .filter(m -> m.getSenderId() != null)
+                .collect(Collectors.groupingBy(ChatMessage::getSenderId,
+                        Collectors.mapping(ChatMessage::getId, Collectors.toList())));
+        idsBySender.forEach((senderId, ids) -> messagingTemplate.convertAndSendToUser(
+                senderId, "/queue/acks", Map.of("status", status, "messageIds", ids)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.PresenceDTO;
+import com.chatapp.backend.model.ChatGroup;
+import com.chatapp.backend.model.Conversation;
+import com.chatapp.backend.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Online presence driven by STOMP session events. The registry lives in memory; changes are coalesced
+ * and published to /topic/presence/{userId} on a short interval, and online/lastSeen are written to
+ * Mongo in periodic bulk updates rather than once per event.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceService.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // userId -> ids of that user's open STOMP sessions
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+
+    // Users whose state changed since the last publish, and users last published as online
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final Set<String> publishedOnline = ConcurrentHashMap.newKeySet();
+
+    // Latest unsaved presence per user; later events for the same user overwrite earlier ones
+    private final Map<String, PresenceDTO> pendingWrites = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gaugeMapSize("chat.presence.online.users", Collections.emptyList(), sessionsByUser);
+        meterRegistry.gaugeMapSize("chat.presence.pending.writes", Collections.emptyList(), pendingWrites);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String userId = userId(event);
+        if (userId == null) {
+            return;
+        }
+        String sessionId = event.getMessage().getHeaders().get("simpSessionId", String.class);
+        sessionsByUser.compute(userId, (id, sessions) -> {
+            Set<String> updated = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            updated.add(sessionId);
+            return updated;
+        });
+        markChanged(userId, true);
+    }
+
+    // May be raised more than once per session: only the removal of a known session can take a user offline
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String userId = userId(event);
+        if (userId == null) {
+            return;
+        }
+        AtomicBoolean removed = new AtomicBoolean();
+        Set<String> remaining = sessionsByUser.computeIfPresent(userId, (id, sessions) -> {
+            removed.set(sessions.remove(event.getSessionId()));
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (removed.get() && remaining == null) {
+            markChanged(userId, false);
+        }
+    }
+
+    /**
+     * Whether {@code viewerId} may follow {@code userId}'s presence: themselves, a chat partner, or
+     * someone they share a group with.
+     */
+    public boolean canWatch(String viewerId, String userId) {
+        if (viewerId.equals(userId)) {
+            return true;
+        }
+        Query conversation = new Query(Criteria.where("_id")
+                .in(Conversation.idFor(viewerId, userId), Conversation.idFor(userId, viewerId)));
+        if (mongoTemplate.exists(conversation, Conversation.class)) {
+            return true;
+        }
+        return mongoTemplate.exists(new Query(Criteria.where("memberIds").all(viewerId, userId)), ChatGroup.class);
+    }
+
+    public boolean isOnline(String userId) {
+        return sessionsByUser.containsKey(userId);
+    }
+
+    public List<PresenceDTO> getPresence(Collection<String> userIds) {
+        Map<String, LocalDateTime> lastSeen = new HashMap<>();
+        Query query = new Query(Criteria.where("_id").in(userIds));
+        query.fields().include("lastSeen");
+        for (User user : mongoTemplate.find(query, User.class)) {
+            lastSeen.put(user.getId(), user.getLastSeen());
+        }
+
+        List<PresenceDTO> result = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            PresenceDTO pending = pendingWrites.get(userId);
+            result.add(new PresenceDTO(userId, isOnline(userId),
+                    pending != null ? pending.getLastSeen() : lastSeen.get(userId)));
+        }
+        return result;
+    }
+
+    // Publishes only net changes: a disconnect followed by a reconnect within one interval sends nothing
+    @Scheduled(fixedDelayString = "${chat.presence.publish-interval-ms:1000}")
+    public void publishChanges() {
+        for (Iterator<String> it = changed.iterator(); it.hasNext();) {
+            String userId = it.next();
+            it.remove();
+            boolean online = isOnline(userId);
+            boolean stateChanged = online ? publishedOnline.add(userId) : publishedOnline.remove(userId);
+            if (stateChanged) {
+                PresenceDTO pending = pendingWrites.get(userId);
+                messagingTemplate.convertAndSend("/topic/presence/" + userId,
+                        new PresenceDTO(userId, online, pending != null ? pending.getLastSeen() : null));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.flush-interval-ms:10000}")
+    public void flushLastSeen() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        List<PresenceDTO> batch = new ArrayList<>(pendingWrites.size());
+        for (String userId : new ArrayList<>(pendingWrites.keySet())) {
+            PresenceDTO presence = pendingWrites.remove(userId);
+            if (presence != null) {
+                batch.add(presence);
+            }
+        }
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            for (PresenceDTO presence : batch) {
+                ops.updateOne(new Query(Criteria.where("_id").is(presence.getUserId())),
+                        new Update().set("online", presence.isOnline()).set("lastSeen", presence.getLastSeen()));
+            }
+            ops.execute();
+            meterRegistry.counter("chat.presence.writes").increment(batch.size());
+        } catch (Exception e) {
+            // Put the batch back unless a newer state arrived meanwhile
+            batch.forEach(presence -> pendingWrites.putIfAbsent(presence.getUserId(), presence));
+            log.error("Could not write presence for {} users: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLastSeen();
+    }
+
+    private void markChanged(String userId, boolean online) {
+        pendingWrites.put(userId, new PresenceDTO(userId, online, LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)));
+        changed.add(userId);
+    }
+
+    private String userId(AbstractSubProtocolEvent event) {
+        Principal user = event.getUser();
+        return user != null ? user.getName() : null;
+    }
+}
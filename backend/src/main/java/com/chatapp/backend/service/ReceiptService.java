@@ -0,0 +1,245 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.ReceiptUpdateDTO;
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Conversation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivery and read receipts for direct chats. Clients acknowledge "everything from this partner up to
+ * message X"; acks are merged per (reader, sender) into watermarks and applied on a short interval as
+ * one range update per conversation, with one aggregated frame per sender on /queue/receipts. Message
+ * ids are ObjectIds assigned in send order, so "up to X" is an _id range.
+ */
+@Service
+public class ReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Applied watermarks are remembered briefly for messages still in the write-behind queue
+    @Value("${chat.receipts.recent-ttl:5m}")
+    private Duration recentTtl;
+
+    // Acks beyond the newest stored message are retried this long, in case that message is still queued
+    @Value("${chat.receipts.clamp-grace:30s}")
+    private Duration clampGrace;
+
+    // Message ids are minted by the server; an ack for an id from the future is forged
+    private static final long MAX_CLOCK_SKEW_MS = 5_000;
+
+    private final Map<ReceiptKey, Watermarks> pending = new ConcurrentHashMap<>();
+    private Cache<ReceiptKey, Watermarks> recent;
+
+    @PostConstruct
+    public void init() {
+        recent = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(recentTtl)
+                .build();
+        meterRegistry.gaugeMapSize("chat.receipts.pending", Collections.emptyList(), pending);
+    }
+
+    public void acknowledge(String readerId, String senderId, String messageId, ChatMessage.MessageStatus status) {
+        if (readerId == null || senderId == null || !ObjectId.isValid(messageId)
+                || (status != ChatMessage.MessageStatus.DELIVERED && status != ChatMessage.MessageStatus.READ)) {
+            return;
+        }
+        String id = messageId.toLowerCase(Locale.ROOT);
+        if (new ObjectId(id).getDate().getTime() > System.currentTimeMillis() + MAX_CLOCK_SKEW_MS) {
+            meterRegistry.counter("chat.receipts.rejected").increment();
+            return;
+        }
+        // Read implies delivered
+        Watermarks ack = new Watermarks(id, status == ChatMessage.MessageStatus.READ ? id : null);
+        pending.merge(new ReceiptKey(readerId, senderId), ack, Watermarks::max);
+        meterRegistry.counter("chat.receipts.acks", "status", status.name()).increment();
+    }
+
+    /**
+     * Status a direct message should be stored with, given receipts that may have arrived before it was
+     * written.
+     */
+    public ChatMessage.MessageStatus statusFor(ChatMessage message) {
+        if (message.getGroupId() != null || message.getRecipientId() == null || message.getId() == null) {
+            return message.getStatus();
+        }
+        ReceiptKey key = new ReceiptKey(message.getRecipientId(), message.getSenderId());
+        Watermarks known = Watermarks.max(recent.getIfPresent(key), pending.get(key));
+        if (known == null) {
+            return message.getStatus();
+        }
+        if (covers(known.readUpTo(), message.getId())) {
+            return ChatMessage.MessageStatus.READ;
+        }
+        if (covers(known.deliveredUpTo(), message.getId())) {
+            return ChatMessage.MessageStatus.DELIVERED;
+        }
+        return message.getStatus();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.receipts.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<ReceiptKey, Watermarks> batch = new HashMap<>();
+        for (ReceiptKey key : new ArrayList<>(pending.keySet())) {
+            Watermarks watermarks = pending.remove(key);
+            if (watermarks != null) {
+                batch.put(key, watermarks);
+            }
+        }
+
+        Map<ReceiptKey, Watermarks> applicable = new HashMap<>();
+        try {
+            // Watermarks are taken on trust from the reader; only apply them up to a message that was stored
+            batch.forEach((key, watermarks) -> {
+                Watermarks clamped = clamp(key, watermarks);
+                if (clamped != null && !covers(recent.getIfPresent(key), clamped)) {
+                    applicable.put(key, clamped);
+                }
+            });
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+            Map<String, String> readConversations = new HashMap<>();
+            for (Map.Entry<ReceiptKey, Watermarks> entry : applicable.entrySet()) {
+                ReceiptKey key = entry.getKey();
+                Watermarks watermarks = entry.getValue();
+                String conversationId = ChatMessage.directConversationId(key.readerId(), key.senderId());
+                if (watermarks.readUpTo() != null) {
+                    ops.updateMulti(range(conversationId, key.senderId(), watermarks.readUpTo())
+                                    .addCriteria(Criteria.where("status").ne(ChatMessage.MessageStatus.READ)),
+                            new Update().set("status", ChatMessage.MessageStatus.READ));
+                    readConversations.put(Conversation.idFor(key.readerId(), key.senderId()), watermarks.readUpTo());
+                }
+                ops.updateMulti(range(conversationId, key.senderId(), watermarks.deliveredUpTo())
+                                .addCriteria(Criteria.where("status").is(ChatMessage.MessageStatus.RECEIVED)),
+                        new Update().set("status", ChatMessage.MessageStatus.DELIVERED));
+            }
+            if (!applicable.isEmpty()) {
+                ops.execute();
+            }
+            conversationService.markReadUpTo(readConversations);
+        } catch (Exception e) {
+            // Put the acks back; newer acks that arrived meanwhile are merged in
+            batch.forEach((key, watermarks) -> pending.merge(key, watermarks, Watermarks::max));
+            log.error("Could not apply {} receipts: {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+
+        // The part beyond the newest stored message is retried while its message may still be queued
+        batch.forEach((key, watermarks) -> {
+            Watermarks applied = applicable.getOrDefault(key, recent.getIfPresent(key));
+            if (!covers(applied, watermarks) && isRecent(watermarks.deliveredUpTo())) {
+                pending.merge(key, watermarks, Watermarks::max);
+            }
+        });
+
+        Map<String, List<ReceiptUpdateDTO>> bySender = new HashMap<>();
+        applicable.forEach((key, watermarks) -> {
+            recent.asMap().merge(key, watermarks, Watermarks::max);
+            bySender.computeIfAbsent(key.senderId(), id -> new ArrayList<>()).add(new ReceiptUpdateDTO(key.readerId(),
+                    ChatMessage.directConversationId(key.readerId(), key.senderId()),
+                    watermarks.deliveredUpTo(), watermarks.readUpTo()));
+        });
+        bySender.forEach((senderId, updates) -> messagingTemplate.convertAndSendToUser(senderId, "/queue/receipts", updates));
+        meterRegistry.counter("chat.receipts.applied").increment(applicable.size());
+    }
+
+    /**
+     * Lowers the watermarks to the newest stored message from the sender at or below the delivered
+     * watermark; null when there is none. Read never exceeds delivered.
+     */
+    private Watermarks clamp(ReceiptKey key, Watermarks watermarks) {
+        String conversationId = ChatMessage.directConversationId(key.readerId(), key.senderId());
+        Query newest = range(conversationId, key.senderId(), watermarks.deliveredUpTo())
+                .with(Sort.by(Sort.Direction.DESC, "timestamp").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(1);
+        newest.fields().include("_id");
+        ChatMessage stored = mongoTemplate.findOne(newest, ChatMessage.class);
+        if (stored == null) {
+            return null;
+        }
+        String upTo = stored.getId();
+        String readUpTo = watermarks.readUpTo() == null ? null
+                : watermarks.readUpTo().compareTo(upTo) <= 0 ? watermarks.readUpTo() : upTo;
+        return new Watermarks(upTo, readUpTo);
+    }
+
+    private boolean isRecent(String messageId) {
+        return new ObjectId(messageId).getDate().getTime() > System.currentTimeMillis() - clampGrace.toMillis();
+    }
+
+    // Whether the applied watermarks already include everything in the given ones
+    private static boolean covers(Watermarks applied, Watermarks watermarks) {
+        return applied != null && covers(applied.deliveredUpTo(), watermarks.deliveredUpTo())
+                && (watermarks.readUpTo() == null || covers(applied.readUpTo(), watermarks.readUpTo()));
+    }
+
+    // Messages from senderId in the conversation with ids up to and including upTo
+    private Query range(String conversationId, String senderId, String upTo) {
+        return new Query(Criteria.where("conversationId").is(conversationId)
+                .and("senderId").is(senderId)
+                .and("_id").lte(new ObjectId(upTo)));
+    }
+
+    private static boolean covers(String watermark, String messageId) {
+        return watermark != null && watermark.compareTo(messageId) >= 0;
+    }
+
+    private record ReceiptKey(String readerId, String senderId) {
+    }
+
+    private record Watermarks(String deliveredUpTo, String readUpTo) {
+
+        static Watermarks max(Watermarks a, Watermarks b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            return new Watermarks(later(a.deliveredUpTo, b.deliveredUpTo), later(a.readUpTo, b.readUpTo));
+        }
+
+        private static String later(String a, String b) {
+            if (a == null) {
+                return b;
+            }
+            return b == null || a.compareTo(b) >= 0 ? a : b;
+        }
+    }
+}
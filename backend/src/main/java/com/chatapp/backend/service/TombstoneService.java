@@ -0,0 +1,175 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Tombstone;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tombstone-first deletion of whole conversations. Deleting writes one tombstone and returns; reads
+ * hide everything up to its cutoff, and a background reaper deletes the messages in bounded batches,
+ * releasing their attachments, then drops the tombstone. Active tombstones are kept in memory and
+ * refreshed from Mongo so other nodes pick them up.
+ */
+@Service
+public class TombstoneService {
+
+    private static final Logger log = LoggerFactory.getLogger(TombstoneService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AttachmentRefService attachmentRefService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.deletes.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${chat.deletes.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    @Value("${chat.deletes.pause-between-batches-ms:100}")
+    private long pauseBetweenBatchesMs;
+
+    private static final long FINISH_DELAY_MS = 60_000;
+
+    // conversationId -> cutoff message id
+    private final Map<String, String> cutoffs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gaugeMapSize("chat.deletes.tombstones", Collections.emptyList(), cutoffs);
+    }
+
+    /**
+     * Hides every message of the conversation sent so far. Messages still in the write-behind queue
+     * have older ids than the cutoff and are covered too.
+     */
+    public void delete(String conversationId) {
+        String cutoff = new ObjectId().toHexString();
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(conversationId)),
+                new Update().max("cutoff", cutoff).setOnInsert("createdAt", LocalDateTime.now()),
+                Tombstone.class);
+        cutoffs.merge(conversationId, cutoff, TombstoneService::later);
+        meterRegistry.counter("chat.deletes.requested").increment();
+    }
+
+    // Cutoff of the conversation's tombstone, or null when nothing is hidden
+    public String cutoff(String conversationId) {
+        return conversationId == null ? null : cutoffs.get(conversationId);
+    }
+
+    public boolean isHidden(ChatMessage message) {
+        String cutoff = cutoff(message.getConversationId());
+        return cutoff != null && message.getId() != null && message.getId().compareTo(cutoff) <= 0;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.deletes.refresh-interval-ms:10000}")
+    public void refresh() {
+        try {
+            // ObjectId times have second precision; anything created from a second before the read is kept
+            long snapshotStart = System.currentTimeMillis() - 1000;
+            Map<String, String> current = new HashMap<>();
+            for (Tombstone tombstone : mongoTemplate.findAll(Tombstone.class)) {
+                current.put(tombstone.getId(), tombstone.getCutoff());
+            }
+            // Never roll a cutoff back, and keep deletes made on this node while the snapshot was read
+            current.forEach((conversationId, cutoff) -> cutoffs.merge(conversationId, cutoff, TombstoneService::later));
+            cutoffs.entrySet().removeIf(entry -> !current.containsKey(entry.getKey())
+                    && new ObjectId(entry.getValue()).getDate().getTime() < snapshotStart);
+        } catch (Exception e) {
+            log.error("Could not refresh tombstones: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes at most max-batches-per-run batches per run, pausing between them, so a huge history is
+     * removed at a steady rate instead of in one long, I/O-heavy delete.
+     */
+    @Scheduled(fixedDelayString = "${chat.deletes.reap-interval-ms:5000}")
+    public void reap() {
+        int batches = 0;
+        for (Tombstone tombstone : mongoTemplate.find(new Query().with(Sort.by("createdAt")), Tombstone.class)) {
+            try {
+                while (batches < maxBatchesPerRun) {
+                    batches++;
+                    if (reapBatch(tombstone)) {
+                        finish(tombstone);
+                        break;
+                    }
+                    Thread.sleep(pauseBetweenBatchesMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Could not reap conversation {}: {}", tombstone.getId(), e.getMessage(), e);
+            }
+            if (batches >= maxBatchesPerRun) {
+                return;
+            }
+        }
+    }
+
+    // Deletes one batch; returns true when nothing behind the tombstone is left
+    private boolean reapBatch(Tombstone tombstone) {
+        Query batch = new Query(Criteria.where("conversationId").is(tombstone.getId())
+                .and("_id").lte(new ObjectId(tombstone.getCutoff())))
+                .limit(batchSize);
+        batch.fields().include("_id").include("attachmentUrl");
+
+        List<ObjectId> ids = new ArrayList<>();
+        List<String> attachmentUrls = new ArrayList<>();
+        for (Document row : mongoTemplate.find(batch, Document.class, "messages")) {
+            ids.add(row.getObjectId("_id"));
+            if (row.getString("attachmentUrl") != null) {
+                attachmentUrls.add(row.getString("attachmentUrl"));
+            }
+        }
+        if (ids.isEmpty()) {
+            return true;
+        }
+
+        long deleted = mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), "messages").getDeletedCount();
+        // Release after deleting: a crash in between leaves a count too high (a kept file), never too low
+        attachmentRefService.releaseAll(attachmentUrls);
+        meterRegistry.counter("chat.deletes.messages.reaped").increment(deleted);
+        return ids.size() < batchSize;
+    }
+
+    private void finish(Tombstone tombstone) {
+        // Messages written behind the cutoff may still be in the write-behind queue for a moment
+        if (new ObjectId(tombstone.getCutoff()).getDate().getTime() > System.currentTimeMillis() - FINISH_DELAY_MS) {
+            return;
+        }
+        // Only if no newer delete moved the cutoff meanwhile
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(tombstone.getId())
+                .and("cutoff").is(tombstone.getCutoff())), Tombstone.class);
+        cutoffs.remove(tombstone.getId(), tombstone.getCutoff());
+        meterRegistry.counter("chat.deletes.completed").increment();
+    }
+
+    private static String later(String a, String b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
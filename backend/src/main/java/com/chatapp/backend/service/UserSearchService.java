@@ -0,0 +1,79 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.UserSummaryDTO;
+import com.chatapp.backend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Prefix search over users. Every user carries {@code searchKeys}, the lower-cased prefixes of the
+ * words in its username and full name, so a search is an equality match on a multikey index instead
+ * of a case-insensitive regex scan.
+ */
+@Service
+public class UserSearchService {
+
+    // Longer query words are truncated to this length, matching the longest stored prefix
+    public static final int MAX_PREFIX_LENGTH = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.users.search.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${chat.users.search.max-page-size:50}")
+    private int maxPageSize;
+
+    public List<UserSummaryDTO> search(String query, String excludedUserId, Integer page, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+
+        Query search = new Query();
+        List<String> words = words(query);
+        if (!words.isEmpty()) {
+            search.addCriteria(Criteria.where("searchKeys").all(words));
+        }
+        if (excludedUserId != null) {
+            search.addCriteria(Criteria.where("_id").ne(excludedUserId));
+        }
+        search.with(PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.ASC, "username")));
+        return mongoTemplate.query(User.class)
+                .as(UserSummaryDTO.class)
+                .matching(search)
+                .all();
+    }
+
+    public static List<String> searchKeys(User user) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String field : new String[] { user.getUsername(), user.getFullName() }) {
+            for (String word : words(field)) {
+                for (int i = 1; i <= word.length(); i++) {
+                    keys.add(word.substring(0, i));
+                }
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[\\s._-]+")) {
+            if (!word.isEmpty()) {
+                words.add(word.length() > MAX_PREFIX_LENGTH ? word.substring(0, MAX_PREFIX_LENGTH) : word);
+            }
+        }
+        return words;
+    }
+}
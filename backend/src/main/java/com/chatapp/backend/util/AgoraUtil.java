@@ -9,9 +9,10 @@ import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.regex.Pattern;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -170,31 +171,30 @@ public class AgoraUtil {
                 return "";
             }
 
-            ByteBuf buf = new ByteBuf().put(this.appId).put(this.issueTs).put(this.expire).put(this.salt)
-                    .put((short) this.services.size());
+            // Both buffers are per-thread and reused; build() is not re-entrant on a thread
+            ByteBuf buf = new ByteBuf(Utils.BODY_BUFFER.get()).put(this.appId).put(this.issueTs).put(this.expire)
+                    .put(this.salt).put((short) this.services.size());
             byte[] signing = getSign();
 
             this.services.forEach((k, v) -> {
                 v.pack(buf);
             });
 
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(signing, "HmacSHA256"));
-            byte[] signature = mac.doFinal(buf.asBytes());
+            Mac mac = Utils.hmac(signing);
+            mac.update(buf.buffer.array(), 0, buf.buffer.position());
+            byte[] signature = mac.doFinal();
 
-            ByteBuf bufferContent = new ByteBuf();
+            ByteBuf bufferContent = new ByteBuf(Utils.CONTENT_BUFFER.get());
             bufferContent.put(signature);
-            bufferContent.buffer.put(buf.asBytes());
+            bufferContent.buffer.put(buf.buffer.array(), 0, buf.buffer.position());
 
-            return VERSION + Utils.base64Encode(Utils.compress(bufferContent.asBytes()));
+            return VERSION + Utils.base64Encode(
+                    Utils.compress(bufferContent.buffer.array(), bufferContent.buffer.position()));
         }
 
         public byte[] getSign() throws Exception {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(new ByteBuf().put(this.issueTs).asBytes(), "HmacSHA256"));
-            byte[] signing = mac.doFinal(this.appCert.getBytes());
-            mac.init(new SecretKeySpec(new ByteBuf().put(this.salt).asBytes(), "HmacSHA256"));
-            return mac.doFinal(signing);
+            byte[] signing = Utils.hmac(Utils.intBytes(this.issueTs)).doFinal(this.appCert.getBytes());
+            return Utils.hmac(Utils.intBytes(this.salt)).doFinal(signing);
         }
 
         public static String getUidStr(int uid) {
@@ -247,16 +247,47 @@ public class AgoraUtil {
     // Utils
     // ==========================================
     public static class Utils {
+        // SecureRandom is thread-safe; seeding a new one per token is the expensive part
+        private static final SecureRandom RANDOM = new SecureRandom();
+        private static final Pattern HEX = Pattern.compile("\\p{XDigit}+");
+
+        // Per-thread instances reused across tokens: Mac and Deflater are costly to create, and a
+        // token fits comfortably in the 1 KB buffers ByteBuf always used
+        private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+            try {
+                return Mac.getInstance("HmacSHA256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+        private static final ThreadLocal<byte[]> DEFLATE_BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+        static final ThreadLocal<ByteBuffer> BODY_BUFFER = ThreadLocal.withInitial(
+                () -> ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN));
+        static final ThreadLocal<ByteBuffer> CONTENT_BUFFER = ThreadLocal.withInitial(
+                () -> ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN));
+
         public static int getTimestamp() {
-            return (int) ((new Date().getTime()) / 1000);
+            return (int) (System.currentTimeMillis() / 1000);
         }
 
         public static int randomInt() {
-            return new SecureRandom().nextInt();
+            return RANDOM.nextInt();
         }
 
         public static boolean isUUID(String uuid) {
-            return uuid.length() == 32 && uuid.matches("\\p{XDigit}+");
+            return uuid.length() == 32 && HEX.matcher(uuid).matches();
+        }
+
+        static Mac hmac(byte[] key) throws InvalidKeyException {
+            Mac mac = HMAC.get();
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        }
+
+        // Little-endian, as ByteBuf.put(int) writes it
+        static byte[] intBytes(int v) {
+            return new byte[] { (byte) v, (byte) (v >>> 8), (byte) (v >>> 16), (byte) (v >>> 24) };
         }
 
         public static String base64Encode(byte[] data) {
@@ -264,26 +295,29 @@ public class AgoraUtil {
         }
 
         public static byte[] compress(byte[] data) {
-            byte[] output;
-            Deflater deflater = new Deflater();
-            java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream(data.length);
+            return compress(data, data.length);
+        }
+
+        public static byte[] compress(byte[] data, int length) {
+            Deflater deflater = DEFLATER.get();
+            byte[] buf = DEFLATE_BUFFER.get();
+            int size = 0;
             try {
                 deflater.reset();
-                deflater.setInput(data);
+                deflater.setInput(data, 0, length);
                 deflater.finish();
-                byte[] buf = new byte[data.length];
                 while (!deflater.finished()) {
-                    int i = deflater.deflate(buf);
-                    bos.write(buf, 0, i);
+                    if (size == buf.length) {
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                        DEFLATE_BUFFER.set(buf);
+                    }
+                    size += deflater.deflate(buf, size, buf.length - size);
                 }
-                output = bos.toByteArray();
             } catch (Exception e) {
-                output = data;
                 e.printStackTrace();
-            } finally {
-                deflater.end();
+                return Arrays.copyOf(data, length);
             }
-            return output;
+            return Arrays.copyOf(buf, size);
         }
     }
 
@@ -291,9 +325,16 @@ public class AgoraUtil {
     // ByteBuf
     // ==========================================
     public static class ByteBuf {
-        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer;
 
         public ByteBuf() {
+            this(ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN));
+        }
+
+        // Writes into a caller-owned little-endian buffer, starting from its beginning
+        public ByteBuf(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.buffer.clear();
         }
 
         public byte[] asBytes() {
@@ -0,0 +1,195 @@
+package com.chatapp.backend.config;
+
+import com.chatapp.backend.security.JwtChannelInterceptor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relay mode against an in-process STOMP broker stand-in: the relay's system session must log in
+ * with the configured credentials, subscribe to the cross-node user broadcasts, and forward
+ * broker-bound messages.
+ */
+@SpringJUnitWebConfig(WebSocketConfig.class)
+class WebSocketConfigRelayTest {
+
+    private static final FakeStompBroker broker = FakeStompBroker.start();
+
+    @MockBean
+    private WebSocketMetrics webSocketMetrics;
+
+    @MockBean
+    private JwtChannelInterceptor jwtChannelInterceptor;
+
+    @Autowired
+    private SimpMessagingTemplate brokerMessagingTemplate;
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) {
+        registry.add("chat.broker.mode", () -> "relay");
+        registry.add("chat.broker.relay.host", () -> "127.0.0.1");
+        registry.add("chat.broker.relay.port", broker::port);
+        registry.add("chat.broker.relay.system-login", () -> "relay-user");
+        registry.add("chat.broker.relay.system-passcode", () -> "relay-secret");
+        registry.add("chat.broker.relay.virtual-host", () -> "chat");
+    }
+
+    @AfterAll
+    static void stopBroker() throws IOException {
+        broker.close();
+    }
+
+    @Test
+    void systemSessionConnectsAndSubscribesToUserBroadcasts() throws Exception {
+        Frame connect = broker.next("CONNECT");
+        assertThat(connect.headers())
+                .containsEntry("login", "relay-user")
+                .containsEntry("passcode", "relay-secret")
+                .containsEntry("host", "chat");
+
+        Frame first = broker.next("SUBSCRIBE");
+        Frame second = broker.next("SUBSCRIBE");
+        assertThat(new String[] { first.headers().get("destination"), second.headers().get("destination") })
+                .containsExactlyInAnyOrder("/topic/simp-user-registry", "/topic/unresolved-user-destination");
+    }
+
+    @Test
+    void forwardsBrokerMessagesToTheRelay() throws Exception {
+        broker.next("CONNECT");
+        brokerMessagingTemplate.convertAndSend("/topic/presence/u1", Map.of("online", true));
+
+        Frame send;
+        do {
+            send = broker.next("SEND");
+        } while (!"/topic/presence/u1".equals(send.headers().get("destination")));
+        assertThat(send.body()).isEqualTo("{\"online\":true}");
+        assertThat(send.headers()).containsEntry("content-type", "application/json");
+    }
+
+    record Frame(String command, Map<String, String> headers, String body) {
+    }
+
+    /**
+     * Accepts one connection at a time, answers CONNECT with CONNECTED (heartbeats off) and records
+     * every frame it receives.
+     */
+    static final class FakeStompBroker implements AutoCloseable {
+
+        private final ServerSocket server;
+        private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        // CONNECT is only sent once per system session; keep it for every test that asks
+        private volatile Frame lastConnect;
+
+        private FakeStompBroker(ServerSocket server) {
+            this.server = server;
+        }
+
+        static FakeStompBroker start() {
+            try {
+                FakeStompBroker broker = new FakeStompBroker(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+                Thread acceptor = new Thread(broker::acceptLoop, "fake-stomp-broker");
+                acceptor.setDaemon(true);
+                acceptor.start();
+                return broker;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        Frame next(String command) throws InterruptedException {
+            if ("CONNECT".equals(command) && lastConnect != null) {
+                return lastConnect;
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Frame frame;
+            while ((frame = frames.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null) {
+                if (frame.command().equals(command)) {
+                    return frame;
+                }
+            }
+            throw new AssertionError("No " + command + " frame received");
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    serve(socket.getInputStream(), socket.getOutputStream());
+                } catch (IOException e) {
+                    // Connection dropped or broker closed; wait for the next one
+                }
+            }
+        }
+
+        private void serve(InputStream in, OutputStream out) throws IOException {
+            Frame frame;
+            while ((frame = read(in)) != null) {
+                if ("CONNECT".equals(frame.command()) || "STOMP".equals(frame.command())) {
+                    lastConnect = frame;
+                    out.write("CONNECTED\nversion:1.2\nheart-beat:0,0\n\n\0".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                frames.add(frame);
+            }
+        }
+
+        // Reads one frame up to its NUL terminator, skipping heartbeat EOLs; null at end of stream
+        private Frame read(InputStream in) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == 0) {
+                    break;
+                }
+                if (buffer.size() == 0 && (b == '\n' || b == '\r')) {
+                    continue;
+                }
+                buffer.write(b);
+            }
+            if (b == -1) {
+                return null;
+            }
+            String raw = buffer.toString(StandardCharsets.UTF_8);
+            int split = raw.indexOf("\n\n");
+            String head = split >= 0 ? raw.substring(0, split) : raw;
+            String[] lines = head.split("\r?\n");
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.putIfAbsent(lines[i].substring(0, colon), lines[i].substring(colon + 1));
+                }
+            }
+            return new Frame(lines[0], headers, split >= 0 ? raw.substring(split + 2) : "");
+        }
+    }
+}
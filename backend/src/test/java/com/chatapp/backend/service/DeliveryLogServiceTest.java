@@ -0,0 +1,144 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.SyncPageDTO;
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Delivery;
+import com.chatapp.backend.model.DeliverySequence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryLogServiceTest {
+
+    private static final String USER = "bob";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TombstoneService tombstoneService = mock(TombstoneService.class);
+    private final DeliveryLogService deliveryLogService = new DeliveryLogService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(deliveryLogService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(deliveryLogService, "groupMembershipCache", mock(GroupMembershipCache.class));
+        ReflectionTestUtils.setField(deliveryLogService, "tombstoneService", tombstoneService);
+        ReflectionTestUtils.setField(deliveryLogService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(deliveryLogService, "defaultPageSize", 200);
+        ReflectionTestUtils.setField(deliveryLogService, "maxPageSize", 500);
+        ReflectionTestUtils.setField(deliveryLogService, "gapGrace", Duration.ofSeconds(10));
+    }
+
+    @Test
+    void recordNumbersEachParticipantsEntriesFromOneReservation() {
+        BulkOperations ops = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Delivery.class))).thenReturn(ops);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(DeliverySequence.class))).thenReturn(sequence(7));
+
+        deliveryLogService.record(List.of(direct("m1"), direct("m2")));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Delivery>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(ops).insert(inserted.capture());
+        // Both participants reserved 2 and got 7 back, so their entries are 6 and 7
+        assertThat(inserted.getValue()).extracting(Delivery::getSeq).containsExactly(6L, 7L, 6L, 7L);
+    }
+
+    @Test
+    void syncReturnsContiguousEntriesAndTheLastSeq() {
+        stubLog(delivery(1, "m1", 0), delivery(2, "m2", 0));
+
+        SyncPageDTO page = deliveryLogService.sync(USER, 0, null);
+
+        assertThat(page.getMessages()).extracting(ChatMessage::getId).containsExactly("m1", "m2");
+        assertThat(page.getLastSeq()).isEqualTo(2);
+        assertThat(page.isHasMore()).isFalse();
+    }
+
+    @Test
+    void syncStopsBeforeAHoleThatMayStillBeFilled() {
+        stubLog(delivery(1, "m1", 0), delivery(2, "m2", 0), delivery(4, "m4", 0));
+
+        SyncPageDTO page = deliveryLogService.sync(USER, 0, null);
+
+        assertThat(page.getMessages()).extracting(ChatMessage::getId).containsExactly("m1", "m2");
+        assertThat(page.getLastSeq()).isEqualTo(2);
+    }
+
+    @Test
+    void syncDoesNotMovePastAYoungHoleAtTheStart() {
+        stubLog(delivery(3, "m3", 0));
+
+        SyncPageDTO page = deliveryLogService.sync(USER, 1, null);
+
+        assertThat(page.getMessages()).isEmpty();
+        assertThat(page.getLastSeq()).isEqualTo(1);
+    }
+
+    @Test
+    void syncSkipsHolesOlderThanTheGracePeriod() {
+        stubLog(delivery(1, "m1", 60_000), delivery(3, "m3", 60_000));
+
+        SyncPageDTO page = deliveryLogService.sync(USER, 0, null);
+
+        assertThat(page.getMessages()).extracting(ChatMessage::getId).containsExactly("m1", "m3");
+        assertThat(page.getLastSeq()).isEqualTo(3);
+    }
+
+    @Test
+    void syncLeavesOutHiddenMessagesButAdvancesPastThem() {
+        stubLog(delivery(1, "m1", 0), delivery(2, "m2", 0));
+        when(tombstoneService.isHidden(any(ChatMessage.class)))
+                .thenAnswer(invocation -> "m1".equals(invocation.getArgument(0, ChatMessage.class).getId()));
+
+        SyncPageDTO page = deliveryLogService.sync(USER, 0, null);
+
+        assertThat(page.getMessages()).extracting(ChatMessage::getId).containsExactly("m2");
+        assertThat(page.getLastSeq()).isEqualTo(2);
+    }
+
+    private void stubLog(Delivery... deliveries) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            messages.add(direct(delivery.getMessageId()));
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(new ArrayList<>(List.of(deliveries)));
+        when(mongoTemplate.find(any(Query.class), eq(ChatMessage.class))).thenReturn(messages);
+    }
+
+    private static DeliverySequence sequence(long seq) {
+        DeliverySequence sequence = new DeliverySequence();
+        sequence.setSeq(seq);
+        return sequence;
+    }
+
+    private static Delivery delivery(long seq, String messageId, long ageMs) {
+        return new Delivery(null, USER, seq, messageId, new Date(System.currentTimeMillis() - ageMs));
+    }
+
+    private static ChatMessage direct(String id) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setSenderId("alice");
+        message.setRecipientId(USER);
+        return message;
+    }
+}
@@ -0,0 +1,178 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessagePersistenceServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations ops = mock(BulkOperations.class);
+    private final ConversationService conversationService = mock(ConversationService.class);
+    private final GroupActivityService groupActivityService = mock(GroupActivityService.class);
+    private final AttachmentRefService attachmentRefService = mock(AttachmentRefService.class);
+    private final ReceiptService receiptService = mock(ReceiptService.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final MessagePersistenceService persistenceService = new MessagePersistenceService();
+
+    // The writer reuses its batch list, so what was passed is copied at call time
+    private final List<Object> inserted = new ArrayList<>();
+    private final List<Object> retained = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        ReflectionTestUtils.setField(persistenceService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(persistenceService, "conversationService", conversationService);
+        ReflectionTestUtils.setField(persistenceService, "groupActivityService", groupActivityService);
+        ReflectionTestUtils.setField(persistenceService, "attachmentRefService", attachmentRefService);
+        ReflectionTestUtils.setField(persistenceService, "receiptService", receiptService);
+        ReflectionTestUtils.setField(persistenceService, "deliveryLogService", mock(DeliveryLogService.class));
+        ReflectionTestUtils.setField(persistenceService, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(persistenceService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(persistenceService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(persistenceService, "batchSize", 50);
+        ReflectionTestUtils.setField(persistenceService, "pollIntervalMs", 10L);
+        ReflectionTestUtils.setField(persistenceService, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(persistenceService, "maxAttempts", 2);
+
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(ChatMessage.class))).thenReturn(ops);
+        when(ops.insert(anyList())).thenAnswer(invocation -> {
+            inserted.addAll(invocation.getArgument(0));
+            return ops;
+        });
+        doAnswer(invocation -> retained.addAll(invocation.getArgument(0)))
+                .when(attachmentRefService).retainMessages(anyCollection());
+        when(receiptService.statusFor(any(ChatMessage.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0, ChatMessage.class).getStatus());
+
+        // Stop the writer thread right away; each test drains the queue on its own thread
+        persistenceService.start();
+        persistenceService.stop();
+    }
+
+    @Test
+    void acksSendersOnceTheirMessagesAreStored() {
+        ChatMessage fromAlice = message("alice");
+        ChatMessage fromBob = message("bob");
+
+        persistenceService.enqueue(fromAlice);
+        persistenceService.enqueue(fromBob);
+        drain();
+
+        assertThat(inserted).containsExactly(fromAlice, fromBob);
+        assertThat(retained).containsExactly(fromAlice, fromBob);
+        verify(messagingTemplate).convertAndSendToUser("alice", "/queue/acks",
+                Map.of("status", "PERSISTED", "messageIds", List.of(fromAlice.getId())));
+        verify(messagingTemplate).convertAndSendToUser("bob", "/queue/acks",
+                Map.of("status", "PERSISTED", "messageIds", List.of(fromBob.getId())));
+    }
+
+    @Test
+    void storesWithTheStatusOfReceiptsThatArrivedFirst() {
+        ChatMessage message = message("alice");
+        when(receiptService.statusFor(message)).thenReturn(ChatMessage.MessageStatus.READ);
+
+        persistenceService.enqueue(message);
+        drain();
+
+        assertThat(message.getStatus()).isEqualTo(ChatMessage.MessageStatus.READ);
+    }
+
+    @Test
+    void treatsDuplicateKeysFromAnEarlierAttemptAsStored() {
+        BulkOperationException duplicates = mock(BulkOperationException.class);
+        when(duplicates.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        when(ops.execute()).thenThrow(duplicates);
+        ChatMessage message = message("alice");
+
+        persistenceService.enqueue(message);
+        drain();
+
+        verify(messagingTemplate).convertAndSendToUser("alice", "/queue/acks",
+                Map.of("status", "PERSISTED", "messageIds", List.of(message.getId())));
+    }
+
+    @Test
+    void acksStoredMessagesEvenIfAReadModelUpdateFails() {
+        doThrow(new IllegalStateException("no primary")).when(groupActivityService).recordMessages(anyCollection());
+        ChatMessage message = message("alice");
+
+        persistenceService.enqueue(message);
+        drain();
+
+        assertThat(retained).containsExactly(message);
+        verify(messagingTemplate).convertAndSendToUser("alice", "/queue/acks",
+                Map.of("status", "PERSISTED", "messageIds", List.of(message.getId())));
+    }
+
+    @Test
+    void acksFailedAfterTheLastAttempt() {
+        when(ops.execute()).thenThrow(new IllegalStateException("no primary"));
+        ChatMessage message = message("alice");
+
+        persistenceService.enqueue(message);
+        drain();
+
+        verify(ops, times(2)).execute();
+        verify(conversationService, never()).recordMessages(anyCollection());
+        verify(attachmentRefService, never()).retainMessages(anyCollection());
+        verify(messagingTemplate).convertAndSendToUser("alice", "/queue/acks",
+                Map.of("status", "FAILED", "messageIds", List.of(message.getId())));
+    }
+
+    @Test
+    void deletesAQueuedMessageRightAfterStoringIt() {
+        ChatMessage message = message("alice");
+        message.setAttachmentUrl("http://localhost/uploads/cas/ab/cd/abcd.jpg");
+
+        persistenceService.enqueue(message);
+        assertThat(persistenceService.deleteWhenPersisted(message.getId())).isTrue();
+        drain();
+
+        assertThat(retained).containsExactly(message);
+        verify(mongoTemplate).remove(any(Query.class), eq(ChatMessage.class));
+        verify(attachmentRefService).releaseAll(List.of(message.getAttachmentUrl()));
+        // Settled: later deletes go to the stored copy
+        assertThat(persistenceService.deleteWhenPersisted(message.getId())).isFalse();
+    }
+
+    private void drain() {
+        ReflectionTestUtils.invokeMethod(persistenceService, "drainLoop");
+    }
+
+    private static ChatMessage message(String senderId) {
+        ChatMessage message = new ChatMessage();
+        message.setId(new ObjectId().toHexString());
+        message.setSenderId(senderId);
+        message.setRecipientId("carol");
+        message.setStatus(ChatMessage.MessageStatus.RECEIVED);
+        return message;
+    }
+}
@@ -0,0 +1,180 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.dto.ReceiptUpdateDTO;
+import com.chatapp.backend.model.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.chatapp.backend.model.ChatMessage.MessageStatus.DELIVERED;
+import static com.chatapp.backend.model.ChatMessage.MessageStatus.READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReceiptServiceTest {
+
+    private static final String SENDER = "alice";
+    private static final String READER = "bob";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReceiptService receiptService = new ReceiptService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(receiptService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(receiptService, "conversationService", mock(ConversationService.class));
+        ReflectionTestUtils.setField(receiptService, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(receiptService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(receiptService, "recentTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(receiptService, "clampGrace", Duration.ofSeconds(30));
+        receiptService.init();
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(ChatMessage.class)))
+                .thenReturn(mock(BulkOperations.class));
+    }
+
+    @Test
+    void mergesAcksIntoTheHighestWatermarks() {
+        String m1 = id();
+        String m2 = id();
+        String m3 = id();
+        newestStored(m3);
+
+        receiptService.acknowledge(READER, SENDER, m3, DELIVERED);
+        receiptService.acknowledge(READER, SENDER, m2, READ);
+        receiptService.acknowledge(READER, SENDER, m1, DELIVERED);
+        receiptService.flush();
+
+        assertThat(sentUpdate()).extracting(ReceiptUpdateDTO::getDeliveredUpTo, ReceiptUpdateDTO::getReadUpTo)
+                .containsExactly(m3, m2);
+    }
+
+    @Test
+    void concurrentAcksKeepTheMaximum() throws InterruptedException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            ids.add(id());
+        }
+        String newest = ids.get(ids.size() - 1);
+        newestStored(newest);
+        Collections.shuffle(ids);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (String messageId : ids) {
+            pool.execute(() -> receiptService.acknowledge(READER, SENDER, messageId, READ));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        receiptService.flush();
+
+        assertThat(sentUpdate()).extracting(ReceiptUpdateDTO::getDeliveredUpTo, ReceiptUpdateDTO::getReadUpTo)
+                .containsExactly(newest, newest);
+    }
+
+    @Test
+    void rejectsIdsFromTheFuture() {
+        String forged = new ObjectId(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1))).toHexString();
+
+        receiptService.acknowledge(READER, SENDER, forged, READ);
+        receiptService.flush();
+
+        assertThat(meterRegistry.counter("chat.receipts.rejected").count()).isEqualTo(1);
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(ChatMessage.class));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+    }
+
+    @Test
+    void clampsToTheNewestStoredMessageAndRetriesTheRest() {
+        String stored = id();
+        String queued = id();
+        newestStored(stored);
+
+        receiptService.acknowledge(READER, SENDER, queued, READ);
+        receiptService.flush();
+        assertThat(sentUpdate()).extracting(ReceiptUpdateDTO::getDeliveredUpTo, ReceiptUpdateDTO::getReadUpTo)
+                .containsExactly(stored, stored);
+
+        // The acked message is written by the next flush
+        clearInvocations(messagingTemplate);
+        newestStored(queued);
+        receiptService.flush();
+        assertThat(sentUpdate()).extracting(ReceiptUpdateDTO::getDeliveredUpTo, ReceiptUpdateDTO::getReadUpTo)
+                .containsExactly(queued, queued);
+    }
+
+    @Test
+    void appliesNothingWithoutAStoredMessage() {
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatMessage.class))).thenReturn(null);
+
+        receiptService.acknowledge(READER, SENDER, new ObjectId(new Date(System.currentTimeMillis() - 60_000))
+                .toHexString(), READ);
+        receiptService.flush();
+
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+    }
+
+    @Test
+    void statusForAppliesReceiptsThatOvertookTheMessage() {
+        String queued = id();
+        String acked = id();
+        newestStored(acked);
+        receiptService.acknowledge(READER, SENDER, acked, READ);
+        receiptService.flush();
+
+        assertThat(receiptService.statusFor(direct(queued))).isEqualTo(READ);
+        assertThat(receiptService.statusFor(direct(id()))).isEqualTo(ChatMessage.MessageStatus.RECEIVED);
+    }
+
+    private void newestStored(String messageId) {
+        ChatMessage stored = new ChatMessage();
+        stored.setId(messageId);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatMessage.class))).thenReturn(stored);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReceiptUpdateDTO sentUpdate() {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSendToUser(eq(SENDER), eq("/queue/receipts"), payload.capture());
+        List<ReceiptUpdateDTO> updates = (List<ReceiptUpdateDTO>) payload.getValue();
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).getReaderId()).isEqualTo(READER);
+        return updates.get(0);
+    }
+
+    private static ChatMessage direct(String id) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setSenderId(SENDER);
+        message.setRecipientId(READER);
+        message.setStatus(ChatMessage.MessageStatus.RECEIVED);
+        return message;
+    }
+
+    private static String id() {
+        return new ObjectId().toHexString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.chatapp.backend.service;
+
+import com.chatapp.backend.model.ChatMessage;
+import com.chatapp.backend.model.Tombstone;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TombstoneServiceTest {
+
+    private static final String CONVERSATION = "alice_bob";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TombstoneService tombstoneService = new TombstoneService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tombstoneService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(tombstoneService, "attachmentRefService", mock(AttachmentRefService.class));
+        ReflectionTestUtils.setField(tombstoneService, "meterRegistry", new SimpleMeterRegistry());
+        tombstoneService.init();
+    }
+
+    @Test
+    void deleteHidesMessagesUpToTheCutoffOnly() {
+        ChatMessage before = message(new ObjectId().toHexString());
+        tombstoneService.delete(CONVERSATION);
+        ChatMessage after = message(new ObjectId().toHexString());
+
+        assertThat(tombstoneService.isHidden(before)).isTrue();
+        assertThat(tombstoneService.isHidden(after)).isFalse();
+    }
+
+    @Test
+    void refreshKeepsALocalDeleteMissingFromTheSnapshot() {
+        when(mongoTemplate.findAll(eq(Tombstone.class))).thenReturn(List.of());
+        ChatMessage message = message(new ObjectId().toHexString());
+        tombstoneService.delete(CONVERSATION);
+
+        tombstoneService.refresh();
+
+        assertThat(tombstoneService.isHidden(message)).isTrue();
+    }
+
+    @Test
+    void refreshNeverRollsACutoffBack() {
+        String older = new ObjectId(new Date(System.currentTimeMillis() - 60_000)).toHexString();
+        when(mongoTemplate.findAll(eq(Tombstone.class)))
+                .thenReturn(List.of(new Tombstone(CONVERSATION, older, LocalDateTime.now())));
+        tombstoneService.delete(CONVERSATION);
+        String local = tombstoneService.cutoff(CONVERSATION);
+
+        tombstoneService.refresh();
+
+        assertThat(tombstoneService.cutoff(CONVERSATION)).isEqualTo(local);
+    }
+
+    @Test
+    void refreshDropsOldTombstonesThatAreGoneFromMongo() {
+        String old = new ObjectId(new Date(System.currentTimeMillis() - 60_000)).toHexString();
+        when(mongoTemplate.findAll(eq(Tombstone.class)))
+                .thenReturn(List.of(new Tombstone(CONVERSATION, old, LocalDateTime.now())))
+                .thenReturn(List.of());
+
+        tombstoneService.refresh();
+        assertThat(tombstoneService.cutoff(CONVERSATION)).isEqualTo(old);
+
+        tombstoneService.refresh();
+        assertThat(tombstoneService.cutoff(CONVERSATION)).isNull();
+    }
+
+    private static ChatMessage message(String id) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setConversationId(CONVERSATION);
+        return message;
+    }
+}
@@ -123,7 +123,7 @@ export default function AppNavigator() {
         // The connect method won't create a duplicate if already connected
         ChatService.connect(
             () => { }, // Messages handled by individual screens
-            userId,
+            user.accessToken,
             handleCallSignal
         );
 
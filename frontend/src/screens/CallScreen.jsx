@@ -84,7 +84,7 @@ const CallScreen = ({ route, navigation }) => {
     const subscribeToCallSignals = () => {
         if (ChatService.client && ChatService.connected) {
             callSubscriptionRef.current = ChatService.client.subscribe(
-                `/user/${currentUserId}/queue/calls`,
+                '/user/queue/calls',
                 (message) => {
                     const data = JSON.parse(message.body);
                     handleSignalingMessage(data);
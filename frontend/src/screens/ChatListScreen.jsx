@@ -10,22 +10,15 @@ const API_URL = 'http://10.0.2.2:8080';
 
 const ChatListScreen = ({ navigation }) => {
     const { user } = useContext(AuthContext);
-    const [chats, setChats] = useState([]);
-    const [groups, setGroups] = useState([]);
+    const [items, setItems] = useState([]);
     const [loading, setLoading] = useState(true);
 
     const fetchData = async () => {
         if (!user?.id) return;
         setLoading(true);
         try {
-            const [convData, groupData] = await Promise.all([
-                ChatService.fetchConversations(user.id, user.accessToken).catch(() => []),
-                axios.get(`${API_URL}/api/groups/user/${user.id}`, {
-                    headers: { Authorization: `Bearer ${user.accessToken}` }
-                }).then(res => res.data).catch(() => [])
-            ]);
-            setChats(convData || []);
-            setGroups(groupData || []);
+            const data = await ChatService.fetchChatList(user.id, user.accessToken);
+            setItems(data || []);
         } catch (error) {
             console.log('Error fetching data:', error);
         } finally {
@@ -42,17 +35,17 @@ const ChatListScreen = ({ navigation }) => {
     const handleDeleteConversation = (item) => {
         Alert.alert(
             'Delete Chat',
-            `Delete conversation with ${item.fullName || item.username}? All messages will be removed.`,
+            `Delete conversation with ${item.name || item.username}? All messages will be removed.`,
             [
                 { text: 'Cancel', style: 'cancel' },
                 {
                     text: 'Delete', style: 'destructive',
                     onPress: async () => {
                         try {
-                            await axios.delete(`${API_URL}/conversations/${user.id}/${item.userId}`, {
+                            await axios.delete(`${API_URL}/conversations/${user.id}/${item.id}`, {
                                 headers: { Authorization: `Bearer ${user.accessToken}` }
                             });
-                            setChats(prev => prev.filter(c => c.userId !== item.userId));
+                            setItems(prev => prev.filter(c => c.type !== 'DIRECT' || c.id !== item.id));
                         } catch (error) {
                             Alert.alert('Error', 'Failed to delete conversation');
                         }
@@ -75,7 +68,7 @@ const ChatListScreen = ({ navigation }) => {
                             await axios.delete(`${API_URL}/api/groups/${item.id}`, {
                                 headers: { Authorization: `Bearer ${user.accessToken}` }
                             });
-                            setGroups(prev => prev.filter(g => g.id !== item.id));
+                            setItems(prev => prev.filter(g => g.type !== 'GROUP' || g.id !== item.id));
                         } catch (error) {
                             Alert.alert('Error', 'Failed to delete group');
                         }
@@ -89,21 +82,21 @@ const ChatListScreen = ({ navigation }) => {
         <TouchableOpacity
             style={styles.item}
             onPress={() => navigation.navigate('Chat', {
-                name: item.fullName || item.username,
-                recipientId: item.userId,
+                name: item.name || item.username,
+                recipientId: item.id,
                 avatar: item.avatar
             })}
             onLongPress={() => handleDeleteConversation(item)}
         >
             {item.avatar ? (
-                <Image source={{ uri: item.avatar }} style={styles.avatar} />
+                <Image source={{ uri: item.avatarVariants?.thumb || item.avatar }} style={styles.avatar} />
             ) : (
                 <View style={[styles.avatar, styles.placeholderAvatar]}>
                     <Icon name="person" size={30} color="#fff" />
                 </View>
             )}
             <View style={styles.info}>
-                <Text style={styles.name}>{item.fullName || item.username}</Text>
+                <Text style={styles.name}>{item.name || item.username}</Text>
                 <Text style={styles.message} numberOfLines={1}>{item.lastMessage}</Text>
             </View>
             {item.timestamp && (
@@ -129,19 +122,19 @@ const ChatListScreen = ({ navigation }) => {
             <View style={styles.info}>
                 <Text style={styles.name}>{item.name}</Text>
                 <Text style={styles.message} numberOfLines={1}>
-                    {item.lastMessage || `${item.memberIds?.length || 0} members`}
+                    {item.lastMessage || `${item.memberCount || 0} members`}
                 </Text>
             </View>
+            {item.timestamp && (
+                <Text style={styles.time}>
+                    {new Date(item.timestamp).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' })}
+                </Text>
+            )}
         </TouchableOpacity>
     );
 
-    const allItems = [
-        ...groups.map(g => ({ ...g, _type: 'group' })),
-        ...chats.map(c => ({ ...c, _type: 'chat' }))
-    ];
-
     const renderItem = ({ item }) => {
-        if (item._type === 'group') return renderGroup({ item });
+        if (item.type === 'GROUP') return renderGroup({ item });
         return renderConversation({ item });
     };
 
@@ -156,9 +149,9 @@ const ChatListScreen = ({ navigation }) => {
     return (
         <View style={styles.container}>
             <FlatList
-                data={allItems}
+                data={items}
                 renderItem={renderItem}
-                keyExtractor={item => item.id || item.userId || Math.random().toString()}
+                keyExtractor={item => `${item.type}-${item.id}`}
                 ListEmptyComponent={
                     <View style={styles.centered}>
                         <Text style={styles.emptyText}>No conversations yet. Start a chat from Contacts!</Text>
@@ -19,6 +19,7 @@ const ChatScreen = ({ route, navigation }) => {
     const [uploading, setUploading] = useState(false);
     const [showDrawer, setShowDrawer] = useState(false);
     const [drawerType, setDrawerType] = useState('emoji'); // 'emoji' or 'sticker'
+    const [presence, setPresence] = useState(null);
     const flatListRef = useRef(null);
 
     const currentUserId = user?.id || user?.userId;
@@ -43,6 +44,10 @@ const ChatScreen = ({ route, navigation }) => {
                 const data = await ChatService.fetchMessages(currentUserId, recipientId, user.accessToken);
                 setMessages(data || []);
                 setLoading(false);
+                const lastFromPartner = (data || []).filter(m => m.senderId === recipientId).pop();
+                if (lastFromPartner) {
+                    ChatService.sendReceipt(recipientId, lastFromPartner.id);
+                }
                 setTimeout(() => flatListRef.current?.scrollToEnd({ animated: true }), 100);
             } catch (error) {
                 console.error('Error fetching messages:', error);
@@ -55,16 +60,56 @@ const ChatScreen = ({ route, navigation }) => {
         ChatService.connect((msg) => {
             console.log('Received message:', msg);
             if (msg.senderId === recipientId || msg.recipientId === recipientId) {
-                setMessages(prev => [...prev, msg]);
+                // Reconnect sync can replay messages that were also delivered live
+                setMessages(prev => prev.some(m => m.id === msg.id) ? prev : [...prev, msg]);
                 setTimeout(() => flatListRef.current?.scrollToEnd({ animated: true }), 100);
+                if (msg.senderId === recipientId) {
+                    ChatService.sendReceipt(recipientId, msg.id);
+                }
             }
-        }, user.username); // Use username for subscription
+        }, user.accessToken);
+
+        // Ids are ObjectId hex strings, so "up to" is a plain string comparison
+        ChatService.receiptHandler = (updates) => {
+            const update = updates.find(u => u.readerId === recipientId);
+            if (!update) return;
+            setMessages(prev => prev.map(m => {
+                if (m.senderId !== currentUserId) return m;
+                if (update.readUpTo && m.id <= update.readUpTo) return { ...m, status: 'READ' };
+                if (update.deliveredUpTo && m.id <= update.deliveredUpTo && m.status !== 'READ') return { ...m, status: 'DELIVERED' };
+                return m;
+            }));
+        };
 
         return () => {
             // ChatService.disconnect(); 
+            ChatService.receiptHandler = null;
         };
     }, [currentUserId, recipientId]);
 
+    // Current state once, then live updates while the screen is open
+    useEffect(() => {
+        if (!recipientId || !user?.accessToken) return;
+        let active = true;
+        ChatService.fetchPresence([recipientId], user.accessToken).then((list) => {
+            const current = (list || []).find(p => p.userId === recipientId);
+            if (active && current) setPresence(current);
+        });
+        const unsubscribe = ChatService.subscribePresence(recipientId, (update) => {
+            setPresence(prev => ({ ...prev, ...update, lastSeen: update.lastSeen || prev?.lastSeen }));
+        });
+        return () => {
+            active = false;
+            unsubscribe();
+        };
+    }, [recipientId, user?.accessToken]);
+
+    const presenceLabel = () => {
+        if (!presence) return null;
+        if (presence.online) return 'Online';
+        return presence.lastSeen ? `Last seen ${new Date(presence.lastSeen).toLocaleString()}` : null;
+    };
+
     const sendMessage = async (content, type = 'TEXT') => {
         if (!content.trim() && type === 'TEXT') return;
         if (!recipientId) return;
@@ -154,7 +199,7 @@ const ChatScreen = ({ route, navigation }) => {
             >
                 {item.type === 'IMAGE' ? (
                     <Image
-                        source={{ uri: item.content }}
+                        source={{ uri: item.attachmentVariants?.small || item.content }}
                         style={{ width: 200, height: 200, borderRadius: 10 }}
                         resizeMode="cover"
                     />
@@ -182,7 +227,9 @@ const ChatScreen = ({ route, navigation }) => {
                 </TouchableOpacity>
                 <View style={styles.headerInfo}>
                     <Text style={styles.headerTitle}>{name}</Text>
-                    {uploading && <Text style={styles.typingIndicator}>Uploading image...</Text>}
+                    {uploading
+                        ? <Text style={styles.typingIndicator}>Uploading image...</Text>
+                        : presenceLabel() && <Text style={styles.presenceText}>{presenceLabel()}</Text>}
                 </View>
                 <TouchableOpacity
                     style={{ marginRight: 15 }}
@@ -295,6 +342,7 @@ const styles = StyleSheet.create({
     headerInfo: { flex: 1, marginLeft: 15 },
     headerTitle: { fontSize: 18, fontWeight: 'bold', color: '#333' },
     typingIndicator: { fontSize: 12, color: '#007AFF', fontStyle: 'italic' },
+    presenceText: { fontSize: 12, color: '#888' },
     list: { padding: 15, paddingBottom: 20 },
     bubble: { maxWidth: '80%', padding: 10, borderRadius: 10, marginBottom: 10 },
     me: { alignSelf: 'flex-end', backgroundColor: '#007AFF' },
@@ -43,7 +43,7 @@ const ContactListScreen = ({ navigation }) => {
         >
             <View style={styles.avatar}>
                 {item.avatar ? (
-                    <Image source={{ uri: item.avatar }} style={styles.avatarImage} />
+                    <Image source={{ uri: item.avatarVariants?.thumb || item.avatar }} style={styles.avatarImage} />
                 ) : (
                     <Text style={styles.avatarText}>
                         {(item.fullName || item.username)?.charAt(0).toUpperCase() || '?'}
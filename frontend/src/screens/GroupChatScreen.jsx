@@ -39,7 +39,7 @@ const GroupChatScreen = ({ route, navigation }) => {
                 setMessages(prev => [...prev, msg]);
                 setTimeout(() => flatListRef.current?.scrollToEnd({ animated: true }), 100);
             }
-        }, user.username);
+        }, user.accessToken);
 
         return () => { };
     }, [groupId]);
@@ -92,7 +92,7 @@ const GroupChatScreen = ({ route, navigation }) => {
             <View style={[styles.bubble, isMe ? styles.me : styles.them]}>
                 {!isMe && <Text style={styles.senderName}>{item.senderName || 'Member'}</Text>}
                 {item.type === 'IMAGE' ? (
-                    <Image source={{ uri: item.content }} style={{ width: 200, height: 200, borderRadius: 10 }} resizeMode="cover" />
+                    <Image source={{ uri: item.attachmentVariants?.small || item.content }} style={{ width: 200, height: 200, borderRadius: 10 }} resizeMode="cover" />
                 ) : (
                     <Text style={[styles.msgText, isMe ? styles.meText : styles.themText]}>{item.content}</Text>
                 )}
@@ -2,9 +2,9 @@ import { Client } from '@stomp/stompjs';
 import axios from 'axios';
 import 'fast-text-encoding';
 
-// The /websocket suffix is required when the Spring Boot endpoint uses .withSockJS()
+// Native WebSocket endpoint (no SockJS framing, permessage-deflate when supported)
 // Replace with your local machine's IP address if running on emulator/device
-const SOCKET_URL = 'ws://10.0.2.2:8080/ws/websocket';
+const SOCKET_URL = 'ws://10.0.2.2:8080/ws-native';
 
 // For Android Emulator, use 10.0.2.2. For physical device, use your PC's IP.
 const API_URL = 'http://10.0.2.2:8080';
@@ -14,6 +14,12 @@ class ChatService {
         this.client = null;
         this.connected = false;
         this.pendingMessages = [];
+        this.receiptHandler = null;
+        // Delivery log position; messages after it are fetched with one sync after a reconnect
+        this.lastSyncSeq = null;
+        // userId -> handler and live STOMP subscription; re-subscribed after every reconnect
+        this.presenceHandlers = {};
+        this.presenceSubscriptions = {};
     }
 
     async fetchConversations(userId, token) {
@@ -30,6 +36,21 @@ class ChatService {
         }
     }
 
+    // Direct chats and groups in one list, sorted by latest activity on the server
+    async fetchChatList(userId, token) {
+        try {
+            const response = await axios.get(`${API_URL}/chats/${userId}`, {
+                headers: {
+                    Authorization: `Bearer ${token}`
+                }
+            });
+            return response.data;
+        } catch (error) {
+            console.warn('Error fetching chat list:', error?.message);
+            return [];
+        }
+    }
+
     async fetchMessages(senderId, recipientId, token) {
         try {
             const response = await axios.get(`${API_URL}/messages/${senderId}/${recipientId}`, {
@@ -80,7 +101,7 @@ class ChatService {
         }
     }
 
-    connect(onMessageReceived, username, onCallSignal) {
+    connect(onMessageReceived, accessToken, onCallSignal) {
         // Don't create a new client if already connected
         if (this.client && this.connected) {
             console.log('STOMP already connected, reusing existing connection');
@@ -94,6 +115,10 @@ class ChatService {
 
         this.client = new Client({
             brokerURL: SOCKET_URL,
+            // The server authenticates the session once, on CONNECT
+            connectHeaders: {
+                Authorization: `Bearer ${accessToken}`,
+            },
             reconnectDelay: 5000,
             heartbeatIncoming: 4000,
             heartbeatOutgoing: 4000,
@@ -101,20 +126,41 @@ class ChatService {
                 this.connected = true;
                 console.log('Connected to STOMP');
 
-                // Subscribe to user-specific message queue
-                this.client.subscribe(`/user/${username}/queue/messages`, (message) => {
+                // Subscribe to user-specific message queue (resolved from the authenticated session)
+                this.client.subscribe('/user/queue/messages', (message) => {
                     const msg = JSON.parse(message.body);
                     onMessageReceived(msg);
                 });
 
                 // Subscribe to call signaling queue
-                this.client.subscribe(`/user/${username}/queue/calls`, (message) => {
+                this.client.subscribe('/user/queue/calls', (message) => {
                     const signal = JSON.parse(message.body);
                     if (onCallSignal) {
                         onCallSignal(signal);
                     }
                 });
 
+                // Catch-up after a reconnect: missed messages arrive in seq order, a page at a time
+                this.client.subscribe('/user/queue/sync', (message) => {
+                    const page = JSON.parse(message.body);
+                    const alreadySynced = this.lastSyncSeq !== null;
+                    (page.messages || []).forEach((msg) => onMessageReceived(msg));
+                    this.lastSyncSeq = page.lastSeq;
+                    if (alreadySynced && page.hasMore) {
+                        this.requestSync();
+                    }
+                });
+                this.requestSync();
+
+                // Aggregated delivery/read watermarks for messages this user sent
+                this.client.subscribe('/user/queue/receipts', (message) => {
+                    if (this.receiptHandler) {
+                        this.receiptHandler(JSON.parse(message.body));
+                    }
+                });
+
+                Object.keys(this.presenceHandlers).forEach((userId) => this.subscribePresenceTopic(userId));
+
                 // Flush any pending messages
                 while (this.pendingMessages.length > 0) {
                     const msg = this.pendingMessages.shift();
@@ -157,6 +203,65 @@ class ChatService {
         }
     }
 
+    requestSync() {
+        if (this.client && this.connected) {
+            this.client.publish({
+                destination: '/app/sync',
+                body: JSON.stringify(this.lastSyncSeq !== null ? { since: this.lastSyncSeq } : {}),
+            });
+        }
+    }
+
+    // Acknowledges every message from partnerId up to and including messageId
+    sendReceipt(partnerId, messageId, status = 'READ') {
+        if (this.client && this.connected && messageId) {
+            this.client.publish({
+                destination: '/app/receipt',
+                body: JSON.stringify({ partnerId, messageId, status }),
+            });
+        }
+    }
+
+    async fetchPresence(userIds, token) {
+        try {
+            const response = await axios.get(`${API_URL}/api/users/presence`, {
+                params: { ids: userIds.join(',') },
+                headers: {
+                    Authorization: `Bearer ${token}`
+                }
+            });
+            return response.data;
+        } catch (error) {
+            console.warn('Error fetching presence:', error?.message);
+            return [];
+        }
+    }
+
+    // Follows a user's presence, also across reconnects; returns the function that stops following
+    subscribePresence(userId, onPresence) {
+        this.presenceHandlers[userId] = onPresence;
+        if (this.client && this.connected) {
+            this.subscribePresenceTopic(userId);
+        }
+        return () => {
+            if (this.presenceHandlers[userId] !== onPresence) return;
+            delete this.presenceHandlers[userId];
+            if (this.presenceSubscriptions[userId] && this.connected) {
+                this.presenceSubscriptions[userId].unsubscribe();
+            }
+            delete this.presenceSubscriptions[userId];
+        };
+    }
+
+    subscribePresenceTopic(userId) {
+        this.presenceSubscriptions[userId] = this.client.subscribe(`/topic/presence/${userId}`, (message) => {
+            const handler = this.presenceHandlers[userId];
+            if (handler) {
+                handler(JSON.parse(message.body));
+            }
+        });
+    }
+
     disconnect() {
         if (this.client) {
             this.client.deactivate();